@@ -0,0 +1,326 @@
+import java.io.*;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.regex.*;
+
+// Closed-loop load generator: sweeps the number of concurrent clients over a weighted mix of student API calls
+// and reports throughput and p50/p99/p999 latency per endpoint at each level, on stdout and as a JSON report.
+// Usage: java LoadTest [baseUrl] [listPath] [secondsPerLevel] [concurrency,levels]
+//   -Dloadtest.mix=list=50,get=30,create=10,update=7,delete=3   operation weights (default: list only)
+//   -Dloadtest.seed=500                                          students created up front for get/update/delete
+//   -Dloadtest.report=loadtest-report.json                       where the JSON report is written
+//   -Dloadtest.embedded=true                                     start StudentWebApp in this JVM on the baseUrl port,
+//                                                                against StandInDatabase unless -Ddb.url is given
+//   -Dloadtest.dbLatencyMicros=0                                 simulated round trip for the embedded stand-in
+public class LoadTest {
+    private static final List<String> OPERATIONS = List.of("list", "get", "create", "update", "delete");
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+    
+    private final HttpClient client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+    private final String baseUrl, listPath;
+    private final Map<String, Integer> mix;
+    private final int totalWeight;
+    // Every run gets its own key space, so repeated runs against the same database never collide
+    private final String runTag = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<Integer> courseIds = new ArrayList<>();
+    // Students this run created and has not deleted, as {id, sequence number their unique fields derive from}
+    private final List<long[]> owned = new ArrayList<>();
+    
+    LoadTest(String baseUrl, String listPath, Map<String, Integer> mix) {
+        this.baseUrl = baseUrl;
+        this.listPath = listPath;
+        this.mix = mix;
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+    }
+    
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:7000";
+        String path = args.length > 1 ? args[1] : "/api/students";
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> levels = new ArrayList<>();
+        if (args.length > 3) {
+            for (String level : args[3].split(",")) levels.add(Integer.parseInt(level.trim()));
+        } else {
+            for (int level = 1; level <= cores * 4; level *= 2) levels.add(level);
+        }
+        Map<String, Integer> mix = parseMix(System.getProperty("loadtest.mix", "list=100"));
+        boolean embedded = Boolean.getBoolean("loadtest.embedded");
+        if (embedded) startEmbeddedServer(URI.create(baseUrl).getPort());
+        
+        LoadTest test = new LoadTest(baseUrl, path, mix);
+        test.prepare(Integer.getInteger("loadtest.seed", 500));
+        
+        System.out.println("🔥 Load testing " + baseUrl + " with " + mix + " (" + cores + " cores, " + seconds + "s per level)");
+        StringBuilder report = new StringBuilder(4096).append("{\"baseUrl\":\"").append(baseUrl)
+            .append("\",\"embedded\":").append(embedded)
+            .append(",\"cores\":").append(cores)
+            .append(",\"secondsPerLevel\":").append(seconds)
+            .append(",\"mix\":{");
+        int field = 0;
+        for (Map.Entry<String, Integer> weight : mix.entrySet()) {
+            report.append(field++ > 0 ? "," : "").append('"').append(weight.getKey()).append("\":").append(weight.getValue());
+        }
+        report.append("},\"levels\":[");
+        
+        double baseline = 0;
+        for (int i = 0; i < levels.size(); i++) {
+            int concurrency = levels.get(i);
+            test.run(concurrency, 2);
+            Map<String, EndpointStats> result = test.run(concurrency, seconds);
+            long requests = 0, errors = 0;
+            for (EndpointStats stats : result.values()) {
+                requests += stats.count();
+                errors += stats.errors.sum();
+            }
+            double throughput = requests / (double) seconds;
+            if (baseline == 0) baseline = throughput;
+            
+            System.out.println();
+            System.out.println(String.format("concurrency %d: %.1f requests/s, %d errors, %.2fx scaling", concurrency, throughput, errors,
+                baseline == 0 ? 0 : throughput / baseline));
+            System.out.println(String.format("%10s %12s %10s %10s %10s %10s %10s", "endpoint", "requests/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors"));
+            report.append(i > 0 ? "," : "").append("{\"concurrency\":").append(concurrency)
+                .append(",\"requests\":").append(requests)
+                .append(",\"errors\":").append(errors)
+                .append(",\"throughput\":").append(round(throughput))
+                .append(",\"endpoints\":{");
+            field = 0;
+            for (Map.Entry<String, EndpointStats> entry : result.entrySet()) {
+                EndpointStats stats = entry.getValue();
+                double endpointThroughput = stats.count() / (double) seconds;
+                System.out.println(String.format("%10s %12.1f %10.2f %10.2f %10.2f %10.2f %10d", entry.getKey(), endpointThroughput,
+                    millis(stats.percentile(50)), millis(stats.percentile(99)), millis(stats.percentile(99.9)),
+                    millis(stats.max()), stats.errors.sum()));
+                report.append(field++ > 0 ? "," : "").append('"').append(entry.getKey()).append("\":{")
+                    .append("\"requests\":").append(stats.count())
+                    .append(",\"errors\":").append(stats.errors.sum())
+                    .append(",\"throughput\":").append(round(endpointThroughput))
+                    .append(",\"meanMs\":").append(round(millis(stats.mean())))
+                    .append(",\"p50Ms\":").append(round(millis(stats.percentile(50))))
+                    .append(",\"p99Ms\":").append(round(millis(stats.percentile(99))))
+                    .append(",\"p999Ms\":").append(round(millis(stats.percentile(99.9))))
+                    .append(",\"maxMs\":").append(round(millis(stats.max())))
+                    .append('}');
+            }
+            report.append("}}");
+        }
+        report.append("]}\n");
+        
+        File reportFile = new File(System.getProperty("loadtest.report", "loadtest-report.json"));
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(reportFile), StandardCharsets.UTF_8)) {
+            out.write(report.toString());
+        }
+        System.out.println();
+        System.out.println("📄 Report written to " + reportFile.getPath());
+        // The embedded server runs on non-daemon threads
+        if (embedded) System.exit(0);
+    }
+    
+    // "list=50,get=30" -> ordered weights; unknown operations and non-positive weights are rejected up front
+    static Map<String, Integer> parseMix(String spec) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2 || !OPERATIONS.contains(pair[0].trim())) {
+                throw new IllegalArgumentException("Invalid loadtest.mix entry '" + part + "', expected one of " + OPERATIONS + " as name=weight");
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight <= 0) throw new IllegalArgumentException("Invalid loadtest.mix weight in '" + part + "'");
+            mix.put(pair[0].trim(), weight);
+        }
+        return mix;
+    }
+    
+    // Runs StudentWebApp.main in this JVM
+    private static void startEmbeddedServer(int port) throws Exception {
+        if (System.getProperty("db.url") == null) {
+            System.setProperty("db.driver", "StandInDatabase");
+            System.setProperty("db.url", "jdbc:standin:loadtest;latencyMicros=" + Integer.getInteger("loadtest.dbLatencyMicros", 0));
+            System.setProperty("db.listen", "false");
+        }
+        System.setProperty("server.port", String.valueOf(port));
+        StudentWebApp.main(new String[0]);
+    }
+    
+    // Loads course ids and creates the students that get/update/delete operate on
+    private void prepare(int seed) throws Exception {
+        HttpResponse<String> courses = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/courses")).GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = ID.matcher(courses.body());
+        while (matcher.find()) courseIds.add(Integer.parseInt(matcher.group(1)));
+        if (courseIds.isEmpty()) throw new IllegalStateException("No courses available at " + baseUrl + "/api/courses");
+        
+        if (!mix.containsKey("get") && !mix.containsKey("update") && !mix.containsKey("delete")) return;
+        System.out.println("🌱 Creating " + seed + " students");
+        for (int i = 0; i < seed; i++) {
+            if (!create().ok) throw new IllegalStateException("Could not create seed students at " + baseUrl);
+        }
+    }
+    
+    // Returns per-endpoint results for one concurrency level
+    private Map<String, EndpointStats> run(int concurrency, int seconds) throws InterruptedException {
+        Map<String, EndpointStats> endpoints = new LinkedHashMap<>();
+        for (String operation : mix.keySet()) endpoints.put(operation, new EndpointStats());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    String operation = pick();
+                    long start = System.nanoTime();
+                    Outcome outcome;
+                    try {
+                        outcome = execute(operation);
+                    } catch (Exception e) {
+                        outcome = Outcome.FAILED;
+                    }
+                    // An update or delete with nothing left to act on did not reach the server
+                    if (outcome == Outcome.SKIPPED) continue;
+                    EndpointStats stats = endpoints.get(operation);
+                    stats.record(System.nanoTime() - start);
+                    if (!outcome.ok) stats.errors.increment();
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+        return endpoints;
+    }
+    
+    private String pick() {
+        int ticket = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<String, Integer> weight : mix.entrySet()) {
+            ticket -= weight.getValue();
+            if (ticket < 0) return weight.getKey();
+        }
+        throw new IllegalStateException();
+    }
+    
+    private enum Outcome {
+        OK(true), FAILED(false), SKIPPED(true);
+        
+        final boolean ok;
+        
+        Outcome(boolean ok) {
+            this.ok = ok;
+        }
+    }
+    
+    private Outcome execute(String operation) throws Exception {
+        switch (operation) {
+            case "list":
+                return send(HttpRequest.newBuilder(URI.create(baseUrl + listPath)).GET(), HttpResponse.BodyHandlers.discarding()) ? Outcome.OK : Outcome.FAILED;
+            case "get": {
+                long[] student = sample(false);
+                if (student == null) return Outcome.SKIPPED;
+                return send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/students/" + student[0])).GET(),
+                    HttpResponse.BodyHandlers.discarding()) ? Outcome.OK : Outcome.FAILED;
+            }
+            case "create":
+                return create();
+            case "update": {
+                long[] student = sample(false);
+                if (student == null) return Outcome.SKIPPED;
+                // Same unique fields, so concurrent updates of one student never conflict; only the name changes
+                String body = studentJson(student[1], "Updated " + sequence.incrementAndGet());
+                return send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/students/" + student[0]))
+                    .header("Content-Type", "application/json").PUT(HttpRequest.BodyPublishers.ofString(body)),
+                    HttpResponse.BodyHandlers.discarding()) ? Outcome.OK : Outcome.FAILED;
+            }
+            case "delete": {
+                long[] student = sample(true);
+                if (student == null) return Outcome.SKIPPED;
+                return send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/students/" + student[0])).DELETE(),
+                    HttpResponse.BodyHandlers.discarding()) ? Outcome.OK : Outcome.FAILED;
+            }
+            default:
+                throw new IllegalArgumentException(operation);
+        }
+    }
+    
+    private Outcome create() throws Exception {
+        long n = sequence.incrementAndGet();
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/students"))
+            .timeout(Duration.ofSeconds(30))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(studentJson(n, "Load Test " + n))).build(), HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = ID.matcher(response.body());
+        if (response.statusCode() >= 400 || !matcher.find()) return Outcome.FAILED;
+        synchronized (owned) {
+            owned.add(new long[] {Long.parseLong(matcher.group(1)), n});
+        }
+        return Outcome.OK;
+    }
+    
+    // A random owned student; remove takes it out of the pool so no other worker touches a deleted row
+    private long[] sample(boolean remove) {
+        synchronized (owned) {
+            if (owned.isEmpty()) return null;
+            int index = ThreadLocalRandom.current().nextInt(owned.size());
+            long[] student = owned.get(index);
+            if (remove) {
+                owned.set(index, owned.get(owned.size() - 1));
+                owned.remove(owned.size() - 1);
+            }
+            return student;
+        }
+    }
+    
+    private String studentJson(long n, String name) {
+        String key = runTag + "-" + n;
+        return "{\"rollNumber\":\"LT-" + key + "\",\"name\":\"" + name + "\",\"email\":\"lt-" + key + "@example.com\"," +
+            "\"courseId\":\"" + courseIds.get((int) (n % courseIds.size())) + "\",\"dateOfBirth\":\"2002-0" + (1 + n % 9) + "-1" + (n % 10) + "\"," +
+            "\"phoneNumber\":\"" + key + "\"}";
+    }
+    
+    private <T> boolean send(HttpRequest.Builder request, HttpResponse.BodyHandler<T> handler) throws Exception {
+        return client.send(request.timeout(Duration.ofSeconds(30)).build(), handler).statusCode() < 400;
+    }
+    
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+    
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+    
+    // Per-endpoint results of one level. Latencies go into the server's own histogram so both report the same
+    // buckets; the exact maximum is kept alongside.
+    static class EndpointStats {
+        final StudentWebApp.LatencyHistogram latency = new StudentWebApp.LatencyHistogram();
+        final AtomicLong maxNanos = new AtomicLong();
+        final LongAdder errors = new LongAdder();
+        
+        void record(long nanos) {
+            latency.record(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+        
+        long count() {
+            return latency.count();
+        }
+        
+        long max() {
+            return maxNanos.get();
+        }
+        
+        long mean() {
+            return latency.meanNanos();
+        }
+        
+        long percentile(double percentile) {
+            return Math.min(latency.quantileNanos(percentile / 100.0), maxNanos.get());
+        }
+    }
+}
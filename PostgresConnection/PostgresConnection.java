@@ -1,12 +1,16 @@
 import java.sql.*;
 
 public class PostgresConnection {
-    private static final String DB_URL = "jdbc:postgresql://localhost:5432/studentdb";
-    private static final String DB_USER = "postgres";
-    private static final String DB_PASSWORD = "sasql"; // Add your PostgreSQL password here
+    // Same -Ddb.* properties as StudentWebApp
+    private static final String DB_URL = System.getProperty("db.url", "jdbc:postgresql://localhost:5432/studentdb");
+    private static final String DB_USER = System.getProperty("db.user", "postgres");
+    private static final String DB_PASSWORD = System.getProperty("db.password", "sasql"); // Add your PostgreSQL password here
+    
+    // Reuses the web app's pool implementation (compile with the project root on the classpath)
+    private static final StudentWebApp.ConnectionPool POOL = new StudentWebApp.ConnectionPool(DB_URL, DB_USER, DB_PASSWORD);
     
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        return POOL.getConnection();
     }
     
     public static void testConnection() throws SQLException {
@@ -50,6 +54,7 @@ public class PostgresConnection {
             Class.forName("org.postgresql.Driver");
             testConnection();
             initDatabase();
+            System.out.println("📊 Pool stats: " + POOL.statsJson());
         } catch (Exception e) {
             System.err.println("❌ Error: " + e.getMessage());
         }
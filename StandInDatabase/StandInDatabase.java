@@ -0,0 +1,472 @@
+import java.lang.reflect.*;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+import java.util.regex.*;
+
+// In-process stand-in for the Postgres database, for benchmarks and load tests on machines without Postgres.
+// It is a JDBC driver for URLs of the form jdbc:standin:<name>[;latencyMicros=N][;replicaOf=<name>[;lagMillis=N]]
+// and understands exactly the statements StudentWebApp issues on its CRUD paths; DDL is accepted and ignored,
+// anything else is rejected. Databases are kept per <name>, so two URLs with different names behave as two separate
+// servers. latencyMicros adds a simulated network round trip to every statement. replicaOf makes <name> a read-only
+// streaming replica of another database, applying its writes lagMillis (default 0) after they happen.
+//
+// Usage: java -cp .:StandInDatabase -Ddb.driver=StandInDatabase -Ddb.url=jdbc:standin:students -Ddb.listen=false StudentWebApp
+public class StandInDatabase implements Driver {
+    private static final String PREFIX = "jdbc:standin:";
+    private static final Map<String, Database> DATABASES = new ConcurrentHashMap<>();
+    // The app builds its SQL from a small set of fragments, so the normalized forms stay few
+    private static final Map<String, String> NORMALIZED_SQL = new ConcurrentHashMap<>();
+    private static final Pattern SQL_STRING = Pattern.compile("'((?:[^']|'')*)'");
+    private static final String[] UNIQUE_COLUMNS = {"roll_number", "email", "phone_number"};
+    private static final Pattern WRITE = Pattern.compile("(?i)(INSERT|UPDATE|DELETE|WITH batch|WITH previous|CREATE|DROP|ALTER|LOCK|COMMENT)\\b.*");
+    private static final ScheduledExecutorService REPLICATION = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "standin-replication");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        try {
+            DriverManager.registerDriver(new StandInDatabase());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // One named in-memory database: courses and students tables with the app's live-row uniqueness rules
+    public static class Database {
+        private final Map<Integer, String> courses = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListMap<Integer, Map<String, Object>> students = new ConcurrentSkipListMap<>();
+        private final AtomicInteger courseIds = new AtomicInteger(), studentIds = new AtomicInteger();
+        private final Map<String, Map<Object, Integer>> liveKeys = new HashMap<>();
+        private final Set<Integer> migrations = ConcurrentHashMap.newKeySet();
+        private final Map<Integer, Map<String, Object>> archive = new ConcurrentHashMap<>();
+        // WAL position: bumped by each write on a primary, and set by a replica as it applies them
+        private final AtomicLong lsn = new AtomicLong();
+        private final List<Database> replicas = new CopyOnWriteArrayList<>();
+        private volatile Database primary;
+        private volatile long lagMillis;
+
+        Database() {
+            for (String column : UNIQUE_COLUMNS) liveKeys.put(column, new HashMap<>());
+        }
+
+        public int studentCount() {
+            return (int) students.values().stream().filter(Database::isLive).count();
+        }
+
+        synchronized int insertCourse(String name) {
+            if (courses.containsValue(name)) return 0;
+            int id = courseIds.incrementAndGet();
+            courses.put(id, name);
+            ship(replica -> replica.courses.put(id, name));
+            return 1;
+        }
+
+        synchronized Map<String, Object> insertStudent(List<Object> p) throws SQLException {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", studentIds.incrementAndGet());
+            fill(row, p);
+            checkWrite(row);
+            row.put("is_deleted", 0);
+            row.put("created_at", new Timestamp(System.currentTimeMillis()));
+            students.put((Integer) row.get("id"), row);
+            indexKeys(row, true);
+            ship(replica -> replica.students.put((Integer) row.get("id"), row));
+            return new HashMap<>(row);
+        }
+
+        // The id comes first, as in the update's CTE; the result also carries the previous course and birth date
+        synchronized Map<String, Object> updateStudent(List<Object> p) throws SQLException {
+            Map<String, Object> existing = students.get(((Number) p.get(0)).intValue());
+            if (existing == null || !isLive(existing)) return null;
+            Map<String, Object> row = new HashMap<>(existing);
+            fill(row, p.subList(1, p.size()));
+            checkWrite(row);
+            indexKeys(existing, false);
+            students.put((Integer) row.get("id"), row);
+            indexKeys(row, true);
+            ship(replica -> replica.students.put((Integer) row.get("id"), row));
+            Map<String, Object> result = new HashMap<>(row);
+            result.put("previous_course_id", existing.get("course_id"));
+            result.put("previous_date_of_birth", existing.get("date_of_birth"));
+            return result;
+        }
+
+        // The deleted row, or null if there was no live student with that id
+        synchronized Map<String, Object> softDelete(int id) {
+            Map<String, Object> existing = students.get(id);
+            if (existing == null || !isLive(existing)) return null;
+            // Rows are replaced, never mutated, so unlocked readers always see a consistent row
+            Map<String, Object> row = new HashMap<>(existing);
+            row.put("is_deleted", 1);
+            row.put("deleted_at", new Timestamp(System.currentTimeMillis()));
+            students.put(id, row);
+            indexKeys(row, false);
+            ship(replica -> replica.students.put(id, row));
+            return new HashMap<>(row);
+        }
+
+        // Live students per course and birth year, as the course statistics aggregate returns them
+        List<Map<String, Object>> courseStats() {
+            Map<List<Integer>, Long> counts = new HashMap<>();
+            for (Map<String, Object> row : students.values()) {
+                if (!isLive(row)) continue;
+                int year = Integer.parseInt(row.get("date_of_birth").toString().substring(0, 4));
+                counts.merge(List.of((Integer) row.get("course_id"), year), 1L, Long::sum);
+            }
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (Map.Entry<List<Integer>, Long> count : counts.entrySet()) {
+                rows.add(Map.of("course_id", count.getKey().get(0), "birth_year", count.getKey().get(1), "students", count.getValue()));
+            }
+            return rows;
+        }
+
+        // Moves up to limit rows soft-deleted more than days ago into the archive, oldest deletion first
+        synchronized int purge(int days, int limit) {
+            long cutoff = System.currentTimeMillis() - days * 86_400_000L;
+            List<Map<String, Object>> batch = new ArrayList<>();
+            for (Map<String, Object> row : students.values()) {
+                if (!isLive(row) && ((Timestamp) row.get("deleted_at")).getTime() < cutoff) batch.add(row);
+            }
+            batch.sort(Comparator.comparing(row -> (Timestamp) row.get("deleted_at")));
+            batch = batch.subList(0, Math.min(limit, batch.size()));
+            for (Map<String, Object> row : batch) archive.put((Integer) row.get("id"), students.remove((Integer) row.get("id")));
+            List<Integer> ids = new ArrayList<>();
+            for (Map<String, Object> row : batch) ids.add((Integer) row.get("id"));
+            if (!ids.isEmpty()) ship(replica -> replica.students.keySet().removeAll(ids));
+            return batch.size();
+        }
+
+        // Rows are immutable once stored, so a change can hand the replica the primary's own row objects.
+        // Called under the database lock, which keeps positions in commit order.
+        private void ship(java.util.function.Consumer<Database> change) {
+            long position = lsn.incrementAndGet();
+            for (Database replica : replicas) {
+                Runnable apply = () -> {
+                    change.accept(replica);
+                    replica.lsn.set(position);
+                };
+                // One thread applies everything; equal delays run in submission order
+                if (replica.lagMillis == 0) apply.run();
+                else REPLICATION.schedule(apply, replica.lagMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        // Starts streaming from primary after copying its current contents, like a base backup
+        synchronized void followOnce(Database primary, long lagMillis) {
+            this.lagMillis = lagMillis;
+            if (this.primary != null) return;
+            synchronized (primary) {
+                courses.putAll(primary.courses);
+                students.putAll(primary.students);
+                lsn.set(primary.lsn.get());
+                primary.replicas.add(this);
+            }
+            this.primary = primary;
+        }
+
+        private static String formatLsn(long lsn) {
+            return Long.toHexString(lsn >>> 32).toUpperCase(Locale.ROOT) + "/" + Long.toHexString(lsn & 0xFFFFFFFFL).toUpperCase(Locale.ROOT);
+        }
+        
+        public int archivedCount() {
+            return archive.size();
+        }
+        
+        private static void fill(Map<String, Object> row, List<Object> p) {
+            row.put("roll_number", p.get(0));
+            row.put("name", p.get(1));
+            row.put("email", p.get(2));
+            row.put("course_id", ((Number) p.get(3)).intValue());
+            row.put("date_of_birth", p.get(4).toString());
+            row.put("phone_number", p.get(5));
+        }
+
+        // Mirrors the partial unique indexes and the courses foreign key, with Postgres' SQLSTATEs and index names
+        private void checkWrite(Map<String, Object> row) throws SQLException {
+            if (!courses.containsKey((Integer) row.get("course_id"))) {
+                throw new SQLException("insert or update on table \"students\" violates foreign key constraint", "23503");
+            }
+            for (String column : UNIQUE_COLUMNS) {
+                Integer owner = liveKeys.get(column).get(row.get(column));
+                if (owner != null && !owner.equals(row.get("id"))) {
+                    throw new SQLException("duplicate key value violates unique constraint \"uq_students_" + column + "\"", "23505");
+                }
+            }
+        }
+
+        private void indexKeys(Map<String, Object> row, boolean add) {
+            for (String column : UNIQUE_COLUMNS) {
+                if (add) liveKeys.get(column).put(row.get(column), (Integer) row.get("id"));
+                else liveKeys.get(column).remove(row.get(column), row.get("id"));
+            }
+        }
+
+        private static boolean isLive(Map<String, Object> row) {
+            return Integer.valueOf(0).equals(row.get("is_deleted"));
+        }
+
+        List<Map<String, Object>> courseRows() {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (Map.Entry<Integer, String> course : courses.entrySet()) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("id", course.getKey());
+                row.put("course_name", course.getValue());
+                rows.add(row);
+            }
+            rows.sort(Comparator.comparing(row -> (String) row.get("course_name")));
+            return rows;
+        }
+
+        Map<String, Object> withCourse(Map<String, Object> row) {
+            Map<String, Object> copy = new HashMap<>(row);
+            copy.put("course_name", courses.get((Integer) row.get("course_id")));
+            return copy;
+        }
+
+        // The list query is assembled from fixed fragments in a fixed order; consume their parameters the same way
+        List<Map<String, Object>> list(String sql, List<Object> p) {
+            int next = 0;
+            int after = Integer.MIN_VALUE, limit = Integer.MAX_VALUE;
+            Integer courseId = null;
+            String rollPrefix = null, term = null, termPrefix = null, dobFrom = null, dobTo = null;
+            if (sql.contains("s.id > ?")) after = ((Number) p.get(next++)).intValue();
+            if (sql.contains("s.course_id = ?")) courseId = ((Number) p.get(next++)).intValue();
+            if (sql.contains("AND s.roll_number LIKE ?")) rollPrefix = unlike(p.get(next++));
+            if (sql.contains("s.name ILIKE ?")) {
+                term = unlike(p.get(next++)).toLowerCase(Locale.ROOT);
+                next++;
+                termPrefix = unlike(p.get(next++));
+            }
+            if (sql.contains("s.date_of_birth >= ?")) dobFrom = p.get(next++).toString();
+            if (sql.contains("s.date_of_birth <= ?")) dobTo = p.get(next++).toString();
+            if (sql.contains("LIMIT ?")) limit = ((Number) p.get(next++)).intValue();
+
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (Map<String, Object> row : students.tailMap(after, false).values()) {
+                if (rows.size() >= limit) break;
+                if (!isLive(row)) continue;
+                if (courseId != null && !courseId.equals(row.get("course_id"))) continue;
+                if (rollPrefix != null && !((String) row.get("roll_number")).startsWith(rollPrefix)) continue;
+                if (term != null && !((String) row.get("name")).toLowerCase(Locale.ROOT).contains(term)
+                        && !((String) row.get("email")).toLowerCase(Locale.ROOT).contains(term)
+                        && !((String) row.get("roll_number")).startsWith(termPrefix)) continue;
+                String dob = (String) row.get("date_of_birth");
+                if (dobFrom != null && dob.compareTo(dobFrom) < 0) continue;
+                if (dobTo != null && dob.compareTo(dobTo) > 0) continue;
+                rows.add(withCourse(row));
+            }
+            return rows;
+        }
+
+        private static String unlike(Object pattern) {
+            String value = pattern.toString();
+            if (value.startsWith("%")) value = value.substring(1);
+            if (value.endsWith("%")) value = value.substring(0, value.length() - 1);
+            return value.replace("\\%", "%").replace("\\_", "_").replace("\\\\", "\\");
+        }
+    }
+
+    public static Database database(String name) {
+        return DATABASES.computeIfAbsent(name, n -> new Database());
+    }
+
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) return null;
+        String[] parts = url.substring(PREFIX.length()).split(";");
+        long latencyNanos = 0, lagMillis = 0;
+        String primary = null;
+        for (int i = 1; i < parts.length; i++) {
+            if (parts[i].startsWith("latencyMicros=")) latencyNanos = Long.parseLong(parts[i].substring(14)) * 1000;
+            if (parts[i].startsWith("replicaOf=")) primary = parts[i].substring(10);
+            if (parts[i].startsWith("lagMillis=")) lagMillis = Long.parseLong(parts[i].substring(10));
+        }
+        Database db = database(parts[0]);
+        if (primary != null) db.followOnce(database(primary), lagMillis);
+        return new Session(db, latencyNanos).connection();
+    }
+
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(PREFIX);
+    }
+
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    // One connection: hands out proxy statements and routes their SQL to the database
+    private static class Session {
+        private final Database db;
+        private final long latencyNanos;
+        private boolean closed, autoCommit = true, readOnly;
+
+        Session(Database db, long latencyNanos) {
+            this.db = db; this.latencyNanos = latencyNanos;
+        }
+
+        Connection connection() {
+            return proxy(Connection.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "createStatement": return statement(null);
+                    case "prepareStatement": return statement((String) args[0]);
+                    case "close": closed = true; return null;
+                    case "isClosed": return closed;
+                    case "isValid": return !closed;
+                    case "getAutoCommit": return autoCommit;
+                    case "setAutoCommit": autoCommit = (Boolean) args[0]; return null;
+                    case "isReadOnly": return readOnly;
+                    case "setReadOnly": readOnly = (Boolean) args[0]; return null;
+                    case "commit": case "rollback": case "clearWarnings": case "setTransactionIsolation": return null;
+                    case "unwrap": throw new SQLFeatureNotSupportedException("The stand-in database has no Postgres extensions (COPY, LISTEN)");
+                    case "isWrapperFor": return false;
+                    default: return defaultValue(proxy, method, args);
+                }
+            });
+        }
+
+        private Object statement(String preparedSql) {
+            Map<Integer, Object> params = new TreeMap<>();
+            Class<?> type = preparedSql == null ? Statement.class : PreparedStatement.class;
+            return proxy(type, (proxy, method, args) -> {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length == 2 && args[0] instanceof Integer) {
+                    params.put((Integer) args[0], args[1]);
+                    return null;
+                }
+                switch (name) {
+                    case "executeQuery": return execute(args == null ? preparedSql : (String) args[0], params, true);
+                    case "executeUpdate": return execute(args == null ? preparedSql : (String) args[0], params, false);
+                    case "execute": execute(args == null ? preparedSql : (String) args[0], params, false); return false;
+                    case "close": case "setFetchSize": case "clearParameters": return null;
+                    default: return defaultValue(proxy, method, args);
+                }
+            });
+        }
+
+        private Object execute(String sql, Map<Integer, Object> params, boolean query) throws SQLException {
+            if (closed) throw new SQLException("Connection is closed", "08003");
+            if (latencyNanos > 0) LockSupport.parkNanos(latencyNanos);
+            String s = NORMALIZED_SQL.computeIfAbsent(sql, text -> text.trim().replaceAll("\\s+", " "));
+            List<Object> p = new ArrayList<>(params.values());
+            boolean replica = db.primary != null;
+            if (replica && WRITE.matcher(s).matches()) {
+                throw new SQLException("cannot execute " + s.split(" ")[0] + " in a read-only transaction", "25006");
+            }
+            // Both exist on either side in Postgres; they just fail or return null on the wrong one
+            if (s.startsWith("SELECT pg_current_wal_lsn()")) {
+                if (replica) throw new SQLException("recovery is in progress", "55000");
+                return resultSet(List.of(Map.of("lsn", Database.formatLsn(db.lsn.get()))));
+            }
+            if (s.startsWith("SELECT pg_last_wal_replay_lsn()")) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("lsn", replica ? Database.formatLsn(db.lsn.get()) : null);
+                return resultSet(List.of(row));
+            }
+
+            if (s.startsWith("SELECT id, course_name FROM courses")) return resultSet(db.courseRows());
+            if (s.startsWith("SELECT id, roll_number, email, phone_number FROM students")) {
+                return resultSet(db.list("", Collections.emptyList()));
+            }
+            if (s.startsWith("SELECT s.id, s.roll_number")) {
+                if (s.contains("WHERE s.id = ?")) {
+                    Map<String, Object> row = db.students.get(((Number) p.get(0)).intValue());
+                    return resultSet(row != null && Database.isLive(row) ? List.of(db.withCourse(row)) : List.of());
+                }
+                return resultSet(db.list(s, p));
+            }
+            if (s.startsWith("INSERT INTO students")) return resultSet(List.of(db.insertStudent(p)));
+            if (s.startsWith("WITH previous AS (SELECT id, course_id, date_of_birth FROM students")) {
+                Map<String, Object> row = db.updateStudent(p);
+                return resultSet(row == null ? List.of() : List.of(row));
+            }
+            // Backfill of deleted_at: every stand-in tombstone is stamped when it is created
+            if (s.startsWith("UPDATE students SET deleted_at")) return 0;
+            if (s.startsWith("UPDATE students SET is_deleted = 1")) {
+                Map<String, Object> row = db.softDelete(((Number) p.get(0)).intValue());
+                if (query) return resultSet(row == null ? List.of() : List.of(row));
+                return row == null ? 0 : 1;
+            }
+            if (s.startsWith("SELECT course_id, CAST(EXTRACT(YEAR FROM date_of_birth)")) return resultSet(db.courseStats());
+            if (s.startsWith("INSERT INTO courses")) {
+                // Seeded as one multi-row statement of literals, or a row at a time with a parameter
+                int inserted = 0;
+                Matcher literal = SQL_STRING.matcher(s);
+                while (literal.find()) inserted += db.insertCourse(literal.group(1).replace("''", "'"));
+                return p.isEmpty() ? inserted : db.insertCourse((String) p.get(0));
+            }
+            if (s.startsWith("SELECT version FROM schema_migrations")) {
+                List<Map<String, Object>> rows = new ArrayList<>();
+                for (Integer version : db.migrations) rows.add(Map.of("version", version));
+                return resultSet(rows);
+            }
+            if (s.startsWith("WITH batch AS ( SELECT id FROM students WHERE is_deleted = 1")) {
+                return db.purge(((Number) p.get(0)).intValue(), ((Number) p.get(1)).intValue());
+            }
+            if (s.startsWith("INSERT INTO schema_migrations")) return db.migrations.add(((Number) p.get(0)).intValue()) ? 1 : 0;
+            // Advisory locks: there is only one process, so there is nothing to serialize against
+            if (s.startsWith("SELECT pg_advisory_")) return resultSet(List.of(Map.of("locked", true)));
+            if (!query && s.matches("(?i)(CREATE|DROP|ALTER|LOCK|SET|COMMENT|LISTEN)\\b.*")) return 0;
+            throw new SQLFeatureNotSupportedException("The stand-in database does not support: " + s);
+        }
+    }
+
+    private static ResultSet resultSet(List<Map<String, Object>> rows) {
+        Iterator<Map<String, Object>> iterator = rows.iterator();
+        AtomicReference<Map<String, Object>> current = new AtomicReference<>();
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.equals("next")) {
+                current.set(iterator.hasNext() ? iterator.next() : null);
+                return current.get() != null;
+            }
+            if (name.startsWith("get") && args != null && args.length == 1 && args[0] instanceof String) {
+                Object value = current.get().get(args[0]);
+                switch (name) {
+                    case "getInt": return value == null ? 0 : ((Number) value).intValue();
+                    case "getLong": return value == null ? 0L : ((Number) value).longValue();
+                    case "getString": return value == null ? null : value.toString();
+                    case "getTimestamp": return value;
+                    case "getDate": return value == null ? null : java.sql.Date.valueOf(value.toString());
+                    case "getObject": return value;
+                    default: break;
+                }
+            }
+            if (name.equals("close")) return null;
+            return defaultValue(proxy, method, args);
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(StandInDatabase.class.getClassLoader(), new Class<?>[] {type}, handler));
+    }
+
+    private static Object defaultValue(Object proxy, Method method, Object[] args) throws SQLException {
+        switch (method.getName()) {
+            case "equals": return proxy == args[0];
+            case "hashCode": return System.identityHashCode(proxy);
+            case "toString": return "StandInDatabase." + method.getDeclaringClass().getSimpleName();
+            default: throw new SQLFeatureNotSupportedException("The stand-in database does not support " + method.getName());
+        }
+    }
+}
@@ -1,13 +1,43 @@
 import java.io.*;
 import java.net.*;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.lang.reflect.*;
 import com.sun.net.httpserver.*;
 
 public class StudentWebApp {
-    private static final String DB_URL = "jdbc:postgresql://localhost:5432/studentdb";
-    private static final String DB_USER = "postgres";
-    private static final String DB_PASSWORD = "sasql";
+    private static final String DB_URL = System.getProperty("db.url", "jdbc:postgresql://localhost:5432/studentdb");
+    private static final String DB_USER = System.getProperty("db.user", "postgres");
+    private static final String DB_PASSWORD = System.getProperty("db.password", "sasql");
+    
+    // Shared connection pool used by every handler (sizes tunable via -Ddb.pool.* system properties)
+    static final ConnectionPool POOL = new ConnectionPool(DB_URL, DB_USER, DB_PASSWORD);
+    // Read-only handlers go through here to reach a replica when db.replicas is set
+    static final ReplicaRouter REPLICAS = new ReplicaRouter(System.getProperty("db.replicas", ""));
+    // Rows fetched per round trip when streaming large result sets through a cursor
+    private static final int FETCH_SIZE = Integer.getInteger("db.fetchSize", 500);
+    // Background jobs (cache refreshes and the like) share one daemon thread
+    static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "background-jobs");
+        t.setDaemon(true);
+        return t;
+    });
+    static final UniqueKeyIndex UNIQUE_KEYS = new UniqueKeyIndex();
+    static final SearchIndex SEARCH = new SearchIndex();
+    static final CourseStats COURSE_STATS = new CourseStats();
+    static volatile CourseCatalog COURSES = CourseCatalog.EMPTY;
+    static final StudentCache STUDENT_CACHE = new StudentCache(
+        Integer.getInteger("cache.students.maxSize", 10000), Long.getLong("cache.students.ttlSeconds", 300) * 1000);
+    // Bumped by every write to students (and course renames); GET /api/students derives its ETag from it
+    static final AtomicLong STUDENTS_VERSION = new AtomicLong();
+    // Distinguishes this process's versions from another node's or a previous run's
+    private static final String BOOT_ID = Long.toHexString(System.currentTimeMillis());
+    static final ChangeFeed CHANGE_FEED = new ChangeFeed();
+    static final ListCache LIST_CACHE = new ListCache(Integer.getInteger("cache.lists.maxEntries", 64));
     
     static class Student {
         int id, courseId;
@@ -18,9 +48,29 @@ public class StudentWebApp {
             this.course = course; this.dateOfBirth = dateOfBirth; this.phoneNumber = phoneNumber; this.courseId = courseId;
         }
         
+        void writeJson(JsonWriter json) {
+            json.beginObject()
+                .name("id").value(id)
+                .name("rollNumber").value(rollNumber)
+                .name("name").value(name)
+                .name("email").value(email)
+                .name("course").value(course)
+                .name("dateOfBirth").value(dateOfBirth)
+                .name("phoneNumber").value(phoneNumber)
+                .name("courseId").value(courseId)
+                .endObject();
+        }
+        
+        byte[] toJsonBytes() {
+            JsonWriter json = JsonWriter.reused(256);
+            writeJson(json);
+            return json.toByteArray();
+        }
+        
         String toJson() {
-            return String.format("{\"id\":%d,\"rollNumber\":\"%s\",\"name\":\"%s\",\"email\":\"%s\",\"course\":\"%s\",\"dateOfBirth\":\"%s\",\"phoneNumber\":\"%s\",\"courseId\":%d}", 
-                id, rollNumber, name, email, course, dateOfBirth, phoneNumber, courseId);
+            JsonWriter json = JsonWriter.reused(256);
+            writeJson(json);
+            return json.toString();
         }
     }
     
@@ -32,140 +82,2957 @@ public class StudentWebApp {
             this.id = id; this.courseName = courseName;
         }
         
-        String toJson() {
-            return String.format("{\"id\":%d,\"courseName\":\"%s\"}", id, courseName);
+        void writeJson(JsonWriter json) {
+            json.beginObject().name("id").value(id).name("courseName").value(courseName).endObject();
+        }
+        
+        String toJson() {
+            JsonWriter json = JsonWriter.reused(64);
+            writeJson(json);
+            return json.toString();
+        }
+    }
+    
+    // Minimal streaming JSON writer that encodes straight into a growable UTF-8 byte buffer. Callers either take
+    // the bytes at the end or drain the buffer to a stream with flushTo() as it fills; one writer is meant to be
+    // reused for a whole response rather than allocating a String per row.
+    static final class JsonWriter {
+        private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+        
+        private byte[] buf;
+        private int count;
+        // Bit n set = the next element at nesting depth n is the first one (no comma needed)
+        private long first = 1;
+        private int depth;
+        private boolean afterName;
+        
+        JsonWriter(int capacity) {
+            buf = new byte[Math.max(16, capacity)];
+        }
+        
+        // Off on virtual threads: each lives for one request, so a per-thread buffer would be allocated every time anyway
+        static volatile boolean reusePerThread = true;
+        // A thread whose writer grew past this for one large response gets a fresh one rather than pinning it
+        private static final int MAX_REUSED_BYTES = 64 * 1024;
+        private static final ThreadLocal<JsonWriter> REUSED = new ThreadLocal<>();
+        
+        // An empty writer owned by the calling thread, for JSON built whole and copied out with toByteArray() or
+        // toString(). It is handed out again by the thread's next call, so finish with it before building any other
+        // JSON and never keep a reference.
+        static JsonWriter reused(int capacity) {
+            if (!reusePerThread) return new JsonWriter(capacity);
+            JsonWriter json = REUSED.get();
+            if (json == null || json.buf.length > MAX_REUSED_BYTES || json.buf.length < capacity) {
+                json = new JsonWriter(Math.max(4096, capacity));
+                REUSED.set(json);
+            }
+            json.count = 0;
+            json.first = 1;
+            json.depth = 0;
+            json.afterName = false;
+            return json;
+        }
+        
+        JsonWriter beginObject() {
+            beforeValue();
+            write('{');
+            return push();
+        }
+        
+        JsonWriter endObject() {
+            depth--;
+            write('}');
+            return this;
+        }
+        
+        JsonWriter beginArray() {
+            beforeValue();
+            write('[');
+            return push();
+        }
+        
+        JsonWriter endArray() {
+            depth--;
+            write(']');
+            return this;
+        }
+        
+        JsonWriter name(String name) {
+            beforeValue();
+            string(name);
+            write(':');
+            afterName = true;
+            return this;
+        }
+        
+        JsonWriter value(String value) {
+            beforeValue();
+            if (value == null) ascii("null");
+            else string(value);
+            return this;
+        }
+        
+        JsonWriter value(long value) {
+            beforeValue();
+            if (value == Long.MIN_VALUE) {
+                ascii(Long.toString(value));
+                return this;
+            }
+            if (value < 0) {
+                write('-');
+                value = -value;
+            }
+            ensure(19);
+            int start = count;
+            do {
+                buf[count++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            for (int i = start, j = count - 1; i < j; i++, j--) {
+                byte digit = buf[i];
+                buf[i] = buf[j];
+                buf[j] = digit;
+            }
+            return this;
+        }
+        
+        JsonWriter value(boolean value) {
+            beforeValue();
+            ascii(value ? "true" : "false");
+            return this;
+        }
+        
+        // Raw separator between top-level documents, e.g. NDJSON lines
+        JsonWriter newline() {
+            write('\n');
+            return this;
+        }
+        
+        int size() {
+            return count;
+        }
+        
+        // Drains the bytes written so far; nesting state is kept so writing can continue
+        void flushTo(OutputStream out) throws IOException {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+        
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, count);
+        }
+        
+        @Override
+        public String toString() {
+            return new String(buf, 0, count, StandardCharsets.UTF_8);
+        }
+        
+        private JsonWriter push() {
+            depth++;
+            if (depth >= 64) throw new IllegalStateException("JSON nested too deeply");
+            first |= 1L << depth;
+            return this;
+        }
+        
+        private void beforeValue() {
+            if (afterName) {
+                afterName = false;
+                return;
+            }
+            long bit = 1L << depth;
+            if ((first & bit) != 0) first &= ~bit;
+            else if (depth > 0) write(',');
+        }
+        
+        private void string(String s) {
+            ensure(s.length() + 2);
+            buf[count++] = '"';
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    if (c == '"' || c == '\\') {
+                        write('\\');
+                        write(c);
+                    } else if (c < 0x20) {
+                        escapeControl(c);
+                    } else {
+                        write(c);
+                    }
+                } else if (c < 0x800) {
+                    ensure(2);
+                    buf[count++] = (byte) (0xc0 | (c >> 6));
+                    buf[count++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    ensure(4);
+                    buf[count++] = (byte) (0xf0 | (cp >> 18));
+                    buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                    buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                    buf[count++] = (byte) (0x80 | (cp & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    write('?');
+                } else {
+                    ensure(3);
+                    buf[count++] = (byte) (0xe0 | (c >> 12));
+                    buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    buf[count++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+            write('"');
+        }
+        
+        private void escapeControl(char c) {
+            switch (c) {
+                case '\n': write('\\'); write('n'); break;
+                case '\r': write('\\'); write('r'); break;
+                case '\t': write('\\'); write('t'); break;
+                case '\b': write('\\'); write('b'); break;
+                case '\f': write('\\'); write('f'); break;
+                default:
+                    ascii("\\u00");
+                    write(HEX[c >> 4]);
+                    write(HEX[c & 0xf]);
+            }
+        }
+        
+        private void ascii(String s) {
+            ensure(s.length());
+            for (int i = 0; i < s.length(); i++) buf[count++] = (byte) s.charAt(i);
+        }
+        
+        private void write(int b) {
+            if (count == buf.length) ensure(1);
+            buf[count++] = (byte) b;
+        }
+        
+        private void ensure(int extra) {
+            if (count + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + extra));
+        }
+    }
+    
+    // Parses the flat JSON objects the API accepts straight from UTF-8 bytes. Scalars are returned as their text
+    // (numbers and booleans unquoted), nulls are dropped and nested objects/arrays are skipped.
+    static final class JsonReader {
+        private final byte[] buf;
+        private final int end;
+        private int pos;
+        
+        private JsonReader(byte[] buf, int off, int len) {
+            this.buf = buf; this.pos = off; this.end = off + len;
+        }
+        
+        static Map<String, String> parseObject(byte[] buf, int off, int len) {
+            JsonReader reader = new JsonReader(buf, off, len);
+            Map<String, String> values = new HashMap<>();
+            reader.expect('{');
+            if (reader.peek() == '}') {
+                reader.pos++;
+            } else {
+                while (true) {
+                    reader.expect('"');
+                    String name = reader.string();
+                    reader.expect(':');
+                    String value = reader.scalarOrSkip();
+                    if (value != null) values.put(name, value);
+                    byte next = reader.next();
+                    if (next == '}') break;
+                    if (next != ',') throw reader.error();
+                }
+            }
+            if (reader.peek() != 0) throw reader.error();
+            return values;
+        }
+        
+        static Map<String, String> parseObject(String json) {
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            return parseObject(bytes, 0, bytes.length);
+        }
+        
+        private String scalarOrSkip() {
+            byte c = peek();
+            if (c == '"') {
+                pos++;
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                skipContainer();
+                return null;
+            }
+            int start = pos;
+            while (pos < end && buf[pos] != ',' && buf[pos] != '}' && buf[pos] != ']' && !isWhitespace(buf[pos])) pos++;
+            if (start == pos) throw error();
+            String literal = new String(buf, start, pos - start, StandardCharsets.US_ASCII);
+            if (literal.equals("null")) return null;
+            if (!literal.equals("true") && !literal.equals("false") && !literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+                throw error();
+            }
+            return literal;
+        }
+        
+        // Called just after the opening quote; decodes up to and including the closing quote
+        private String string() {
+            int start = pos;
+            while (pos < end && buf[pos] != '"' && buf[pos] != '\\') pos++;
+            if (pos >= end) throw error();
+            if (buf[pos] == '"') return new String(buf, start, pos++ - start, StandardCharsets.UTF_8);
+            
+            // Slow path for escapes: copy what we have and decode the rest
+            ByteArrayOutputStream out = new ByteArrayOutputStream(pos - start + 16);
+            out.write(buf, start, pos - start);
+            while (true) {
+                if (pos >= end) throw error();
+                byte c = buf[pos++];
+                if (c == '"') return new String(out.toByteArray(), StandardCharsets.UTF_8);
+                if (c != '\\') {
+                    out.write(c);
+                    continue;
+                }
+                if (pos >= end) throw error();
+                byte escaped = buf[pos++];
+                switch (escaped) {
+                    case '"': case '\\': case '/': out.write(escaped); break;
+                    case 'n': out.write('\n'); break;
+                    case 'r': out.write('\r'); break;
+                    case 't': out.write('\t'); break;
+                    case 'b': out.write('\b'); break;
+                    case 'f': out.write('\f'); break;
+                    case 'u':
+                        if (pos + 4 > end) throw error();
+                        char ch;
+                        try {
+                            ch = (char) Integer.parseInt(new String(buf, pos, 4, StandardCharsets.US_ASCII), 16);
+                        } catch (NumberFormatException e) {
+                            throw error();
+                        }
+                        pos += 4;
+                        // Surrogate pairs arrive as two escapes; join them before encoding
+                        if (Character.isHighSurrogate(ch) && pos + 6 <= end && buf[pos] == '\\' && buf[pos + 1] == 'u') {
+                            char low = (char) Integer.parseInt(new String(buf, pos + 2, 4, StandardCharsets.US_ASCII), 16);
+                            pos += 6;
+                            out.writeBytes(new String(new char[] {ch, low}).getBytes(StandardCharsets.UTF_8));
+                        } else {
+                            out.writeBytes(String.valueOf(ch).getBytes(StandardCharsets.UTF_8));
+                        }
+                        break;
+                    default:
+                        throw error();
+                }
+            }
+        }
+        
+        private void skipContainer() {
+            int nesting = 0;
+            while (pos < end) {
+                byte c = buf[pos++];
+                if (c == '"') {
+                    string();
+                } else if (c == '{' || c == '[') {
+                    nesting++;
+                } else if (c == '}' || c == ']') {
+                    if (--nesting == 0) return;
+                }
+            }
+            throw error();
+        }
+        
+        private void expect(char c) {
+            if (next() != c) throw error();
+        }
+        
+        private byte next() {
+            byte c = peek();
+            if (c == 0) throw error();
+            pos++;
+            return c;
+        }
+        
+        // Next non-whitespace byte without consuming it, or 0 at the end of input
+        private byte peek() {
+            while (pos < end && isWhitespace(buf[pos])) pos++;
+            return pos < end ? buf[pos] : 0;
+        }
+        
+        private static boolean isWhitespace(byte c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+        }
+        
+        private IllegalArgumentException error() {
+            return new IllegalArgumentException("Invalid JSON at offset " + pos);
+        }
+    }
+    
+    // Thrown while reading a request to answer it with a specific client-error status
+    static class BadRequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        final int status;
+        
+        BadRequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+    
+    // Thrown out of a handler whose response has already started, when it cannot be finished. Closing the body
+    // (or the exchange) would end a chunked response cleanly, so the client could not tell it was cut short;
+    // letting this escape makes the server drop the connection instead.
+    static class ResponseAbortedException extends IOException {
+        private static final long serialVersionUID = 1L;
+        
+        ResponseAbortedException(Throwable cause) {
+            super(cause);
+        }
+    }
+    
+    // Bounded JDBC connection pool: borrowed connections are handed out as proxies whose close() returns them to the pool
+    public static class ConnectionPool implements AutoCloseable {
+        private final String url, user, password;
+        private final int minIdle, maxSize;
+        private final long acquireTimeoutMillis, idleTimeoutMillis, validationIntervalMillis;
+        private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+        private final Semaphore permits;
+        private final AtomicInteger total = new AtomicInteger(), waiting = new AtomicInteger();
+        private final AtomicLong borrowed = new AtomicLong(), timeouts = new AtomicLong(), created = new AtomicLong(),
+                                 destroyed = new AtomicLong(), validationFailures = new AtomicLong();
+        private final ScheduledExecutorService housekeeper;
+        private volatile boolean closed;
+        
+        public ConnectionPool(String url, String user, String password) {
+            this(url, user, password, Integer.getInteger("db.pool.minIdle", 2), Integer.getInteger("db.pool.maxSize", 10),
+                 Long.getLong("db.pool.acquireTimeoutMillis", 5000), Long.getLong("db.pool.idleTimeoutMillis", 300000),
+                 Long.getLong("db.pool.validationIntervalMillis", 30000));
+        }
+        
+        public ConnectionPool(String url, String user, String password, int minIdle, int maxSize,
+                              long acquireTimeoutMillis, long idleTimeoutMillis, long validationIntervalMillis) {
+            if (maxSize < 1 || minIdle < 0 || minIdle > maxSize) {
+                throw new IllegalArgumentException("Invalid pool size: minIdle=" + minIdle + ", maxSize=" + maxSize);
+            }
+            this.url = url; this.user = user; this.password = password;
+            this.minIdle = minIdle; this.maxSize = maxSize;
+            this.acquireTimeoutMillis = acquireTimeoutMillis; this.idleTimeoutMillis = idleTimeoutMillis;
+            this.validationIntervalMillis = validationIntervalMillis;
+            this.permits = new Semaphore(maxSize, true);
+            this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "db-pool-housekeeper");
+                t.setDaemon(true);
+                return t;
+            });
+            long period = Math.max(1000, Math.min(idleTimeoutMillis, 30000));
+            housekeeper.scheduleWithFixedDelay(this::housekeep, 0, period, TimeUnit.MILLISECONDS);
+        }
+        
+        public Connection getConnection() throws SQLException {
+            if (closed) throw new SQLException("Connection pool is closed");
+            long start = System.nanoTime();
+            try {
+                return acquire();
+            } finally {
+                Metrics.recordConnectionWait(System.nanoTime() - start);
+            }
+        }
+        
+        private Connection acquire() throws SQLException {
+            waiting.incrementAndGet();
+            try {
+                if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    timeouts.incrementAndGet();
+                    throw new SQLTimeoutException("Timed out after " + acquireTimeoutMillis + "ms waiting for a database connection");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            } finally {
+                waiting.decrementAndGet();
+            }
+            
+            try {
+                PooledConnection pooled;
+                // Most recently returned first: it is the least likely to have gone stale
+                while ((pooled = idle.pollFirst()) != null) {
+                    if (isUsable(pooled)) break;
+                    validationFailures.incrementAndGet();
+                    destroy(pooled);
+                }
+                if (pooled == null) pooled = open();
+                borrowed.incrementAndGet();
+                return pooled.lease();
+            } catch (SQLException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+        
+        private PooledConnection open() throws SQLException {
+            Connection raw = DriverManager.getConnection(url, user, password);
+            total.incrementAndGet();
+            created.incrementAndGet();
+            return new PooledConnection(raw);
+        }
+        
+        private boolean isUsable(PooledConnection pooled) {
+            try {
+                if (System.currentTimeMillis() - pooled.lastUsed < validationIntervalMillis) {
+                    return !pooled.raw.isClosed();
+                }
+                return pooled.raw.isValid(2);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+        
+        private void release(PooledConnection pooled) {
+            try {
+                boolean reusable = !closed && !pooled.broken && pooled.reset();
+                if (reusable) {
+                    pooled.lastUsed = System.currentTimeMillis();
+                    idle.offerFirst(pooled);
+                } else {
+                    destroy(pooled);
+                }
+            } finally {
+                permits.release();
+            }
+        }
+        
+        private void destroy(PooledConnection pooled) {
+            total.decrementAndGet();
+            destroyed.incrementAndGet();
+            try {
+                pooled.raw.close();
+            } catch (SQLException ignored) {
+            }
+        }
+        
+        // Evicts connections idle past idleTimeoutMillis (down to minIdle) and tops the pool back up to minIdle
+        private void housekeep() {
+            long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+            Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+            while (oldestFirst.hasNext() && idle.size() > minIdle) {
+                PooledConnection pooled = oldestFirst.next();
+                if (pooled.lastUsed < cutoff && idle.removeLastOccurrence(pooled)) destroy(pooled);
+            }
+            while (!closed && idle.size() < minIdle && total.get() < maxSize && permits.tryAcquire()) {
+                try {
+                    idle.offerLast(open());
+                } catch (SQLException e) {
+                    break;
+                } finally {
+                    permits.release();
+                }
+            }
+        }
+        
+        public String statsJson() {
+            return String.format("{\"total\":%d,\"idle\":%d,\"active\":%d,\"waiting\":%d,\"minIdle\":%d,\"maxSize\":%d," +
+                "\"borrowed\":%d,\"timeouts\":%d,\"created\":%d,\"destroyed\":%d,\"validationFailures\":%d}",
+                total.get(), idle.size(), maxSize - permits.availablePermits(), waiting.get(), minIdle, maxSize,
+                borrowed.get(), timeouts.get(), created.get(), destroyed.get(), validationFailures.get());
+        }
+        
+        void writePrometheus(StringBuilder out) {
+            out.append("# HELP studentapp_db_pool_connections Pooled connections by state.\n");
+            out.append("# TYPE studentapp_db_pool_connections gauge\n");
+            out.append("studentapp_db_pool_connections{state=\"active\"} ").append(maxSize - permits.availablePermits()).append('\n');
+            out.append("studentapp_db_pool_connections{state=\"idle\"} ").append(idle.size()).append('\n');
+            out.append("# HELP studentapp_db_pool_waiting Requests currently waiting for a connection.\n");
+            out.append("# TYPE studentapp_db_pool_waiting gauge\n");
+            out.append("studentapp_db_pool_waiting ").append(waiting.get()).append('\n');
+            out.append("# HELP studentapp_db_pool_timeouts_total Connection requests that timed out.\n");
+            out.append("# TYPE studentapp_db_pool_timeouts_total counter\n");
+            out.append("studentapp_db_pool_timeouts_total ").append(timeouts.get()).append('\n');
+        }
+        
+        @Override
+        public void close() {
+            closed = true;
+            housekeeper.shutdownNow();
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) destroy(pooled);
+        }
+        
+        private class PooledConnection {
+            final Connection raw;
+            final List<Statement> statements = new ArrayList<>();
+            volatile long lastUsed = System.currentTimeMillis();
+            boolean broken;
+            
+            PooledConnection(Connection raw) {
+                this.raw = raw;
+            }
+            
+            Connection lease() {
+                AtomicBoolean returned = new AtomicBoolean();
+                return (Connection) java.lang.reflect.Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.equals("close")) {
+                            if (returned.compareAndSet(false, true)) release(this);
+                            return null;
+                        }
+                        if (name.equals("isClosed")) return returned.get() || raw.isClosed();
+                        if (returned.get()) throw new SQLException("Connection has already been returned to the pool");
+                        if (name.equals("commit") || name.equals("rollback")) return timed(raw, method, args);
+                        Object result = invoke(raw, method, args);
+                        if (result instanceof Statement) {
+                            // Handlers rarely close their statements, so track them and close them on return
+                            statements.add((Statement) result);
+                            return timedStatement(result, method.getReturnType());
+                        }
+                        return result;
+                    });
+            }
+            
+            // Statement proxy that reports execute* time to the request metrics
+            private Object timedStatement(Object statement, Class<?> type) {
+                return java.lang.reflect.Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {type},
+                    (proxy, method, args) -> method.getName().startsWith("execute") ? timed(statement, method, args) : invoke(statement, method, args));
+            }
+            
+            private Object timed(Object target, Method method, Object[] args) throws Throwable {
+                long start = System.nanoTime();
+                try {
+                    return invoke(target, method, args);
+                } finally {
+                    Metrics.recordStatement(System.nanoTime() - start);
+                }
+            }
+            
+            private Object invoke(Object target, Method method, Object[] args) throws Throwable {
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof SQLException) {
+                        String state = ((SQLException) cause).getSQLState();
+                        if (state != null && state.startsWith("08")) broken = true;
+                    }
+                    throw cause;
+                }
+            }
+            
+            // Restores the connection to its pristine state; false means it should be discarded instead
+            boolean reset() {
+                try {
+                    for (Statement statement : statements) statement.close();
+                    statements.clear();
+                    if (!raw.getAutoCommit()) {
+                        raw.rollback();
+                        raw.setAutoCommit(true);
+                    }
+                    if (raw.isReadOnly()) raw.setReadOnly(false);
+                    raw.clearWarnings();
+                    return true;
+                } catch (SQLException e) {
+                    return false;
+                }
+            }
+        }
+    }
+    
+    // Spreads read-only queries over the streaming replicas in db.replicas (comma-separated JDBC URLs, same
+    // credentials as the primary); everything else stays on POOL. A background check records each replica's replay
+    // position and takes it out of rotation when it fails or falls more than db.replicas.maxLagBytes behind.
+    // Writes hand the client the primary's WAL position in X-Read-After; reads that send it back are only served by
+    // a replica that has replayed that far, otherwise by the primary.
+    static final class ReplicaRouter {
+        static final String READ_AFTER_HEADER = "X-Read-After";
+        private static final long CHECK_MILLIS = Long.getLong("db.replicas.healthCheckMillis", 1000);
+        private static final long MAX_LAG_BYTES = Long.getLong("db.replicas.maxLagBytes", 16 * 1024 * 1024);
+        
+        static final class Replica {
+            final String label, url;
+            final ConnectionPool pool;
+            final LongAdder reads = new LongAdder();
+            // Unhealthy until the first check has seen it
+            volatile boolean healthy;
+            volatile long replayedLsn, lagBytes;
+            
+            Replica(String label, String url) {
+                this.label = label; this.url = url;
+                this.pool = new ConnectionPool(url, DB_USER, DB_PASSWORD);
+            }
+        }
+        
+        // A connection for a read, and whether it is guaranteed to reflect every write this node has made.
+        // A replica that may be behind is fine to answer from, but not to fill the caches or derive an ETag from.
+        static final class ReadConnection implements AutoCloseable {
+            final Connection conn;
+            final boolean current;
+            
+            ReadConnection(Connection conn, boolean current) {
+                this.conn = conn; this.current = current;
+            }
+            
+            public void close() throws SQLException {
+                conn.close();
+            }
+        }
+        
+        private final List<Replica> replicas = new ArrayList<>();
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicLong lastWriteLsn = new AtomicLong();
+        private final LongAdder primaryReads = new LongAdder();
+        private volatile long primaryLsn;
+        
+        ReplicaRouter(String urls) {
+            for (String url : urls.split(",")) {
+                if (!url.isBlank()) replicas.add(new Replica(String.valueOf(replicas.size() + 1), url.trim()));
+            }
+        }
+        
+        void start() {
+            if (replicas.isEmpty()) return;
+            for (Replica replica : replicas) System.out.println("📚 Read replica " + replica.label + ": " + replica.url);
+            ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "db-replica-health");
+                t.setDaemon(true);
+                return t;
+            });
+            checker.scheduleWithFixedDelay(this::check, 0, CHECK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        
+        ReadConnection read(HttpExchange exchange) throws SQLException {
+            if (!replicas.isEmpty()) {
+                long required = parseLsn(exchange.getRequestHeaders().getFirst(READ_AFTER_HEADER));
+                long written = lastWriteLsn.get();
+                int start = next.getAndIncrement() & Integer.MAX_VALUE;
+                for (int i = 0; i < replicas.size(); i++) {
+                    Replica replica = replicas.get((start + i) % replicas.size());
+                    long replayed = replica.replayedLsn;
+                    if (!replica.healthy || replayed < required) continue;
+                    try {
+                        Connection conn = replica.pool.getConnection();
+                        replica.reads.increment();
+                        return new ReadConnection(conn, replayed >= written);
+                    } catch (SQLTimeoutException e) {
+                        // Saturated rather than down; try the next one
+                    } catch (SQLException e) {
+                        markDown(replica, e.getMessage());
+                    }
+                }
+            }
+            primaryReads.increment();
+            return new ReadConnection(POOL.getConnection(), true);
+        }
+        
+        // Call on the connection that made a write, once it has committed and before the response headers go out
+        void afterWrite(HttpExchange exchange, Connection conn) {
+            String lsn = recordWrite(conn);
+            if (lsn != null) exchange.getResponseHeaders().set(READ_AFTER_HEADER, lsn);
+        }
+        
+        // Returns the primary's WAL position after this node's latest write, or null without replicas
+        String recordWrite(Connection conn) {
+            if (replicas.isEmpty()) return null;
+            try {
+                ResultSet rs = conn.prepareStatement("SELECT pg_current_wal_lsn() AS lsn").executeQuery();
+                if (!rs.next()) return null;
+                String lsn = rs.getString("lsn");
+                lastWriteLsn.accumulateAndGet(parseLsn(lsn), Math::max);
+                return lsn;
+            } catch (SQLException e) {
+                System.err.println("⚠️ WAL position after write not read: " + e.getMessage());
+                return null;
+            }
+        }
+        
+        // Another node wrote to the primary. Its notification is sent on commit, so the primary's position now is at
+        // or past that write; reads must not count a replica short of it as current, or a stale row would be
+        // cached under the version the notification bumps. Call before bumping it.
+        void recordRemoteWrite() {
+            if (replicas.isEmpty()) return;
+            try (Connection conn = POOL.getConnection()) {
+                lastWriteLsn.accumulateAndGet(queryLsn(conn, "pg_current_wal_lsn()"), Math::max);
+            } catch (SQLException e) {
+                // Without the position, treat every replica as behind until the next health check reads one
+                lastWriteLsn.set(Long.MAX_VALUE);
+                System.err.println("⚠️ WAL position after remote write not read: " + e.getMessage());
+            }
+        }
+        
+        private void check() {
+            try (Connection conn = POOL.getConnection()) {
+                primaryLsn = queryLsn(conn, "pg_current_wal_lsn()");
+                lastWriteLsn.compareAndSet(Long.MAX_VALUE, primaryLsn);
+            } catch (SQLException e) {
+                // Keep the last known position; lag is then measured against it
+            }
+            for (Replica replica : replicas) {
+                try (Connection conn = replica.pool.getConnection()) {
+                    long replayed = queryLsn(conn, "pg_last_wal_replay_lsn()");
+                    if (replayed == 0) throw new SQLException("not in recovery, so not a replica");
+                    replica.replayedLsn = replayed;
+                    replica.lagBytes = Math.max(0, primaryLsn - replayed);
+                    if (replica.lagBytes > MAX_LAG_BYTES) {
+                        markDown(replica, replica.lagBytes + " bytes behind the primary");
+                    } else if (!replica.healthy) {
+                        replica.healthy = true;
+                        System.out.println("✅ Read replica " + replica.label + " in rotation");
+                    }
+                } catch (SQLException e) {
+                    markDown(replica, e.getMessage());
+                }
+            }
+        }
+        
+        private void markDown(Replica replica, String reason) {
+            if (!replica.healthy) return;
+            replica.healthy = false;
+            System.err.println("⚠️ Read replica " + replica.label + " out of rotation: " + reason);
+        }
+        
+        private static long queryLsn(Connection conn, String function) throws SQLException {
+            ResultSet rs = conn.createStatement().executeQuery("SELECT " + function + " AS lsn");
+            return rs.next() ? parseLsn(rs.getString("lsn")) : 0;
+        }
+        
+        // Postgres prints positions as two hex halves, "16/B374D848"; anything unparseable counts as 0
+        static long parseLsn(String lsn) {
+            if (lsn == null) return 0;
+            int slash = lsn.indexOf('/');
+            try {
+                return slash < 0 ? 0 : Long.parseLong(lsn.substring(0, slash).trim(), 16) << 32 | Long.parseLong(lsn.substring(slash + 1).trim(), 16);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        
+        void writePrometheus(StringBuilder out) {
+            out.append("# HELP studentapp_db_reads_total Read connections handed out, by target.\n");
+            out.append("# TYPE studentapp_db_reads_total counter\n");
+            out.append("studentapp_db_reads_total{target=\"primary\"} ").append(primaryReads.sum()).append('\n');
+            for (Replica replica : replicas) out.append("studentapp_db_reads_total{target=\"replica-").append(replica.label).append("\"} ").append(replica.reads.sum()).append('\n');
+            if (replicas.isEmpty()) return;
+            out.append("# HELP studentapp_db_replica_up Whether the replica is in read rotation.\n");
+            out.append("# TYPE studentapp_db_replica_up gauge\n");
+            for (Replica replica : replicas) out.append("studentapp_db_replica_up{replica=\"").append(replica.label).append("\"} ").append(replica.healthy ? 1 : 0).append('\n');
+            out.append("# HELP studentapp_db_replica_lag_bytes WAL the replica had still to replay at the last check.\n");
+            out.append("# TYPE studentapp_db_replica_lag_bytes gauge\n");
+            for (Replica replica : replicas) out.append("studentapp_db_replica_lag_bytes{replica=\"").append(replica.label).append("\"} ").append(replica.lagBytes).append('\n');
+        }
+        
+        void close() {
+            for (Replica replica : replicas) replica.pool.close();
+        }
+    }
+    
+    // In-memory mirror of the live roll number / email / phone keys so duplicate checks never touch the database.
+    // It is advisory: the partial unique indexes remain the source of truth, and a periodic reload picks up
+    // writes made by other nodes. Keys compare exactly as those indexes do, so case matters.
+    static class UniqueKeyIndex {
+        private static class Keys {
+            final ConcurrentHashMap<String, Integer> rollNumbers = new ConcurrentHashMap<>();
+            final ConcurrentHashMap<String, Integer> emails = new ConcurrentHashMap<>();
+            final ConcurrentHashMap<String, Integer> phoneNumbers = new ConcurrentHashMap<>();
+            final ConcurrentHashMap<Integer, String[]> byId = new ConcurrentHashMap<>();
+        }
+        
+        private volatile Keys keys = new Keys();
+        // Ids written while a reload is reading the table; their current keys are copied into the new index.
+        // Writers and the swap synchronize on the index; lookups never do.
+        private Set<Integer> touched;
+        
+        void reload() throws SQLException {
+            synchronized (this) {
+                touched = new HashSet<>();
+            }
+            Keys fresh = new Keys();
+            try (Connection conn = POOL.getConnection()) {
+                conn.setAutoCommit(false);
+                PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id, roll_number, email, phone_number FROM students WHERE is_deleted = 0");
+                stmt.setFetchSize(FETCH_SIZE);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    put(fresh, rs.getInt("id"), rs.getString("roll_number"), rs.getString("email"), rs.getString("phone_number"));
+                }
+            } catch (SQLException | RuntimeException e) {
+                synchronized (this) {
+                    touched = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                for (int id : touched) {
+                    String[] entry = keys.byId.get(id);
+                    if (entry != null) {
+                        put(fresh, id, entry[0], entry[1], entry[2]);
+                    } else {
+                        String[] stale = fresh.byId.remove(id);
+                        if (stale != null) unlink(fresh, id, stale);
+                    }
+                }
+                touched = null;
+                keys = fresh;
+            }
+        }
+        
+        synchronized void put(int id, String rollNumber, String email, String phoneNumber) {
+            put(keys, id, rollNumber, email, phoneNumber);
+            if (touched != null) touched.add(id);
+        }
+        
+        private static void put(Keys keys, int id, String rollNumber, String email, String phoneNumber) {
+            String[] entry = {rollNumber, email, phoneNumber};
+            String[] previous = keys.byId.put(id, entry);
+            if (previous != null) unlink(keys, id, previous);
+            keys.rollNumbers.put(entry[0], id);
+            keys.emails.put(entry[1], id);
+            keys.phoneNumbers.put(entry[2], id);
+        }
+        
+        synchronized void remove(int id) {
+            Keys current = keys;
+            String[] previous = current.byId.remove(id);
+            if (previous != null) unlink(current, id, previous);
+            if (touched != null) touched.add(id);
+        }
+        
+        // Only drops keys still owned by this id, in case another student has since claimed them
+        private static void unlink(Keys keys, int id, String[] entry) {
+            keys.rollNumbers.remove(entry[0], id);
+            keys.emails.remove(entry[1], id);
+            keys.phoneNumbers.remove(entry[2], id);
+        }
+        
+        // Returns the field -> message map of values already taken by a student other than excludeId
+        Map<String, String> conflicts(String rollNumber, String email, String phoneNumber, int excludeId) {
+            Keys current = keys;
+            Map<String, String> conflicts = new LinkedHashMap<>();
+            if (isTaken(current.rollNumbers, rollNumber, excludeId)) {
+                conflicts.put("rollNumber", "Roll number already exists. Please use a different roll number.");
+            }
+            if (isTaken(current.emails, email, excludeId)) {
+                conflicts.put("email", "Email already exists. Please use a different email address.");
+            }
+            if (isTaken(current.phoneNumbers, phoneNumber, excludeId)) {
+                conflicts.put("phoneNumber", "Phone number already exists. Please use a different phone number.");
+            }
+            return conflicts;
+        }
+        
+        private static boolean isTaken(Map<String, Integer> index, String key, int excludeId) {
+            if (key == null) return false;
+            Integer owner = index.get(key);
+            return owner != null && owner != excludeId;
+        }
+        
+        int size() {
+            return keys.byId.size();
+        }
+    }
+    
+    // In-memory trigram index over name, roll number, email and phone for GET /api/students/search. Loaded from the
+    // database in the background, kept current by the write handlers and peers' notifications, and reloaded every
+    // search.refreshSeconds to pick up anything missed. Ids are SERIAL, so documents live in an array indexed by id.
+    static final class SearchIndex {
+        static final int MAX_LIMIT = 100;
+        // Deepest rank a page can reach (offset + limit)
+        private static final int MAX_RESULTS = Integer.getInteger("search.maxResults", 1000);
+        // Candidates examined per query before it stops and reports truncated; bounds the work, not the ranking
+        private static final int MAX_CANDIDATES = Integer.getInteger("search.maxCandidates", 200_000);
+        // A typo-tolerant match needs at least this share of the query's trigrams
+        private static final double FUZZY_THRESHOLD = Double.parseDouble(System.getProperty("search.fuzzyThreshold", "0.5"));
+        
+        // Sorted, duplicate-free student ids containing one trigram
+        private static final class Postings {
+            int[] ids = new int[4];
+            int size;
+            
+            void add(int id) {
+                if (size == 0 || ids[size - 1] < id) {
+                    insertAt(size, id);
+                } else {
+                    int at = Arrays.binarySearch(ids, 0, size, id);
+                    if (at < 0) insertAt(-at - 1, id);
+                }
+            }
+            
+            private void insertAt(int at, int id) {
+                if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+                System.arraycopy(ids, at, ids, at + 1, size - at);
+                ids[at] = id;
+                size++;
+            }
+            
+            void remove(int id) {
+                int at = Arrays.binarySearch(ids, 0, size, id);
+                if (at < 0) return;
+                System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+                size--;
+            }
+        }
+        
+        // The k highest sort keys offered, in a min-heap whose root is the one to evict next
+        private static final class TopK {
+            final long[] heap;
+            int size;
+            
+            TopK(int k) {
+                heap = new long[k];
+            }
+            
+            void offer(long key) {
+                if (size < heap.length) {
+                    int at = size++;
+                    while (at > 0 && heap[(at - 1) / 2] > key) {
+                        heap[at] = heap[(at - 1) / 2];
+                        at = (at - 1) / 2;
+                    }
+                    heap[at] = key;
+                } else if (size > 0 && key > heap[0]) {
+                    int at = 0;
+                    while (true) {
+                        int child = 2 * at + 1;
+                        if (child >= size) break;
+                        if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+                        if (heap[child] >= key) break;
+                        heap[at] = heap[child];
+                        at = child;
+                    }
+                    heap[at] = key;
+                }
+            }
+            
+            // Best first
+            long[] ranked() {
+                long[] keys = Arrays.copyOf(heap, size);
+                Arrays.sort(keys);
+                for (int i = 0, j = keys.length - 1; i < j; i++, j--) {
+                    long key = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = key;
+                }
+                return keys;
+            }
+        }
+        
+        private static final class Doc {
+            final Student student;
+            // " name\n roll\n email\n phone\n" lower-cased: every field starts after a space, like the padded
+            // trigrams indexed for it, so field starts, word starts and whole fields can be told apart when ranking
+            final String text;
+            
+            Doc(Student student) {
+                this.student = student;
+                StringBuilder text = new StringBuilder(64);
+                for (String field : new String[] {student.name, student.rollNumber, student.email, student.phoneNumber}) {
+                    text.append(' ').append(field == null ? "" : field.toLowerCase(Locale.ROOT)).append('\n');
+                }
+                this.text = text.toString();
+            }
+            
+            // Distinct trigrams within each field; recomputed on removal rather than kept per student
+            long[] trigrams() {
+                long[] keys = new long[text.length()];
+                int n = 0;
+                for (int i = 0; i + 3 <= text.length(); i++) {
+                    if (text.indexOf('\n', i) < i + 3) continue;
+                    keys[n++] = key(text, i);
+                }
+                Arrays.sort(keys, 0, n);
+                int unique = 0;
+                for (int i = 0; i < n; i++) if (unique == 0 || keys[unique - 1] != keys[i]) keys[unique++] = keys[i];
+                return Arrays.copyOf(keys, unique);
+            }
+        }
+        
+        private static final class Data {
+            final HashMap<Long, Postings> postings = new HashMap<>();
+            Doc[] docs = new Doc[1024];
+            int count;
+            
+            Doc get(int id) {
+                return id > 0 && id < docs.length ? docs[id] : null;
+            }
+            
+            void put(Doc doc) {
+                int id = doc.student.id;
+                remove(id);
+                if (id >= docs.length) docs = Arrays.copyOf(docs, Math.max(id + 1, docs.length * 2));
+                docs[id] = doc;
+                count++;
+                for (long trigram : doc.trigrams()) postings.computeIfAbsent(trigram, key -> new Postings()).add(id);
+            }
+            
+            void remove(int id) {
+                Doc doc = get(id);
+                if (doc == null) return;
+                docs[id] = null;
+                count--;
+                for (long trigram : doc.trigrams()) {
+                    Postings list = postings.get(trigram);
+                    if (list == null) continue;
+                    list.remove(id);
+                    if (list.size == 0) postings.remove(trigram);
+                }
+            }
+        }
+        
+        static final class Result {
+            final List<Student> students;
+            final int total;
+            final boolean truncated, fuzzy;
+            
+            Result(List<Student> students, int total, boolean truncated, boolean fuzzy) {
+                this.students = students; this.total = total; this.truncated = truncated; this.fuzzy = fuzzy;
+            }
+        }
+        
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private Data data = new Data();
+        // Ids written while a reload is reading the table; their current state is copied into the new data
+        private Set<Integer> touched;
+        private volatile boolean ready;
+        
+        private static long key(String text, int at) {
+            return (long) text.charAt(at) << 32 | (long) text.charAt(at + 1) << 16 | text.charAt(at + 2);
+        }
+        
+        boolean isReady() {
+            return ready;
+        }
+        
+        int size() {
+            lock.readLock().lock();
+            try {
+                return data.count;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        
+        void writePrometheus(StringBuilder out) {
+            int students, trigrams;
+            lock.readLock().lock();
+            try {
+                students = data.count;
+                trigrams = data.postings.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+            out.append("# HELP studentapp_search_index_students Students in the search index.\n");
+            out.append("# TYPE studentapp_search_index_students gauge\n");
+            out.append("studentapp_search_index_students ").append(students).append('\n');
+            out.append("# HELP studentapp_search_index_trigrams Distinct trigrams in the search index.\n");
+            out.append("# TYPE studentapp_search_index_trigrams gauge\n");
+            out.append("studentapp_search_index_trigrams ").append(trigrams).append('\n');
+        }
+        
+        void put(Student student) {
+            Doc doc = new Doc(student);
+            lock.writeLock().lock();
+            try {
+                data.put(doc);
+                if (touched != null) touched.add(student.id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        void remove(int id) {
+            lock.writeLock().lock();
+            try {
+                data.remove(id);
+                if (touched != null) touched.add(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        void reload() throws SQLException {
+            lock.writeLock().lock();
+            try {
+                touched = new HashSet<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Data fresh = new Data();
+            try (Connection conn = POOL.getConnection()) {
+                conn.setAutoCommit(false);
+                PreparedStatement stmt = conn.prepareStatement(StudentHandler.SELECT_STUDENTS + " WHERE s.is_deleted = 0");
+                stmt.setFetchSize(FETCH_SIZE);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) fresh.put(new Doc(StudentHandler.readStudent(rs)));
+            } catch (SQLException | RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    touched = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+            lock.writeLock().lock();
+            try {
+                for (int id : touched) {
+                    Doc doc = data.get(id);
+                    if (doc == null) fresh.remove(id);
+                    else fresh.put(doc);
+                }
+                touched = null;
+                data = fresh;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        // Every term (2+ characters; shorter ones are ignored) must occur in some field. A 2-character term only
+        // matches the start of a word. Results are ranked by how well each term matched: a whole field, the start
+        // of a field, the start of a word, anywhere. If nothing matches, the query's trigrams are matched loosely
+        // instead, so a typo still finds the student. Returns null when there is no usable term.
+        Result search(String query, int offset, int limit) {
+            List<String> terms = new ArrayList<>();
+            for (String term : query.toLowerCase(Locale.ROOT).trim().split("\\s+")) if (term.length() >= 2) terms.add(term);
+            if (terms.isEmpty()) return null;
+            LinkedHashSet<Long> strict = new LinkedHashSet<>();
+            LinkedHashMap<Long, String> loose = new LinkedHashMap<>();
+            for (String term : terms) {
+                String padded = " " + term;
+                if (term.length() == 2) strict.add(key(padded, 0));
+                for (int i = term.length() == 2 ? 0 : 1; i + 3 <= padded.length(); i++) strict.add(key(padded, i));
+                for (int i = 0; i + 3 <= padded.length(); i++) loose.put(key(padded, i), padded.substring(i, i + 3));
+            }
+            
+            lock.readLock().lock();
+            try {
+                TopK top = new TopK(Math.max(0, Math.min(offset + limit, MAX_RESULTS)));
+                int matches = 0, examined = 0;
+                boolean truncated = false, fuzzy = false;
+                
+                List<Postings> lists = postingsFor(strict);
+                if (lists != null) {
+                    // Leapfrog intersection: every list keeps a cursor that gallops forward to the current candidate,
+                    // so the work follows the rarest list rather than the longest
+                    int[] cursors = new int[lists.size()];
+                    Postings rarest = lists.get(0);
+                    candidates:
+                    while (cursors[0] < rarest.size) {
+                        int id = rarest.ids[cursors[0]];
+                        for (int l = 1; l < cursors.length; l++) {
+                            Postings list = lists.get(l);
+                            cursors[l] = seek(list, cursors[l], id);
+                            if (cursors[l] == list.size) break candidates;
+                            if (list.ids[cursors[l]] != id) {
+                                cursors[0] = seek(rarest, cursors[0], list.ids[cursors[l]]);
+                                continue candidates;
+                            }
+                        }
+                        cursors[0]++;
+                        if (++examined > MAX_CANDIDATES) {
+                            truncated = true;
+                            break;
+                        }
+                        int score = 0;
+                        Doc doc = data.docs[id];
+                        for (String term : terms) {
+                            int match = matchClass(doc.text, term);
+                            if (match == 0 || (term.length() == 2 && match < 2)) {
+                                score = 0;
+                                break;
+                            }
+                            score += match;
+                        }
+                        if (score == 0) continue;
+                        matches++;
+                        top.offer(sortKey(score * 1000, id));
+                    }
+                }
+                
+                if (matches == 0 && loose.size() >= 3) {
+                    fuzzy = true;
+                    int n = loose.size(), needed = (int) Math.ceil(n * FUZZY_THRESHOLD);
+                    // A student sharing at least `needed` trigrams is in at least one of any n - needed + 1 lists,
+                    // so only the rarest ones have to be read
+                    List<Postings> all = new ArrayList<>();
+                    for (Long trigram : loose.keySet()) all.add(data.postings.get(trigram));
+                    all.sort(Comparator.comparingInt(list -> list == null ? 0 : list.size));
+                    Set<Integer> seen = new HashSet<>();
+                    scan:
+                    for (Postings list : all.subList(0, n - needed + 1)) {
+                        if (list == null) continue;
+                        for (int i = 0; i < list.size; i++) {
+                            int id = list.ids[i];
+                            if (!seen.add(id)) continue;
+                            if (++examined > MAX_CANDIDATES) {
+                                truncated = true;
+                                break scan;
+                            }
+                            String text = data.docs[id].text;
+                            int shared = 0;
+                            for (String trigram : loose.values()) if (text.contains(trigram)) shared++;
+                            if (shared < needed) continue;
+                            matches++;
+                            top.offer(sortKey(shared * 999 / n, id));
+                        }
+                    }
+                }
+                
+                long[] ranked = top.ranked();
+                List<Student> page = new ArrayList<>(Math.max(0, ranked.length - offset));
+                for (int i = offset; i < ranked.length; i++) page.add(data.docs[Integer.MAX_VALUE - (int) ranked[i]].student);
+                return new Result(page, matches, truncated, fuzzy);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        
+        // Posting lists for every trigram, rarest first, or null if any trigram occurs nowhere
+        private List<Postings> postingsFor(Set<Long> trigrams) {
+            List<Postings> lists = new ArrayList<>(trigrams.size());
+            for (Long trigram : trigrams) {
+                Postings list = data.postings.get(trigram);
+                if (list == null) return null;
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+            return lists;
+        }
+        
+        // Index of the first id >= target at or after from: exponential steps, then a binary search
+        private static int seek(Postings list, int from, int target) {
+            int step = 1, hi = from;
+            while (hi < list.size && list.ids[hi] < target) {
+                from = hi + 1;
+                hi += step;
+                step <<= 1;
+            }
+            int at = Arrays.binarySearch(list.ids, from, Math.min(hi + 1, list.size), target);
+            return at < 0 ? -at - 1 : at;
+        }
+        
+        // Higher score first, then lower id
+        private static long sortKey(int score, int id) {
+            return (long) score << 32 | (Integer.MAX_VALUE - id);
+        }
+        
+        // 4 = a whole field, 3 = start of a field, 2 = start of a word, 1 = anywhere, 0 = absent
+        private static int matchClass(String text, String term) {
+            int best = 0;
+            for (int at = text.indexOf(term); at > 0 && best < 4; at = text.indexOf(term, at + 1)) {
+                char before = text.charAt(at - 1);
+                int match;
+                if (before == ' ' && (at == 1 || text.charAt(at - 2) == '\n')) {
+                    match = text.charAt(at + term.length()) == '\n' ? 4 : 3;
+                } else {
+                    match = before == ' ' || before == '.' || before == '@' || before == '_' || before == '-' ? 2 : 1;
+                }
+                best = Math.max(best, match);
+            }
+            return best;
+        }
+    }
+
+    // Bounded LRU cache of serialized student JSON keyed by id. Split into independently locked segments so
+    // concurrent hits do not all contend on one LinkedHashMap. Entries also expire after a TTL, which bounds
+    // staleness from writes made on other nodes.
+    static class StudentCache {
+        private static final int SEGMENTS = 16;
+        
+        private static class Entry {
+            final byte[] json;
+            final long expiresAt;
+            
+            Entry(byte[] json, long expiresAt) {
+                this.json = json; this.expiresAt = expiresAt;
+            }
+        }
+        
+        @SuppressWarnings("serial")
+        private static class Segment extends LinkedHashMap<Integer, Entry> {
+            private final int capacity;
+            private final LongAdder evictions;
+            // Bumped by every write so a read that raced with it does not cache the old row
+            long generation;
+            
+            Segment(int capacity, LongAdder evictions) {
+                super(16, 0.75f, true);
+                this.capacity = capacity; this.evictions = evictions;
+            }
+            
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() <= capacity) return false;
+                evictions.increment();
+                return true;
+            }
+        }
+        
+        private final Segment[] segments = new Segment[SEGMENTS];
+        private final long ttlMillis;
+        private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+        
+        StudentCache(int capacity, long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+            for (int i = 0; i < SEGMENTS; i++) segments[i] = new Segment(Math.max(1, capacity / SEGMENTS), evictions);
+        }
+        
+        private Segment segment(int id) {
+            return segments[(id & 0x7fffffff) % SEGMENTS];
+        }
+        
+        byte[] get(int id) {
+            Segment segment = segment(id);
+            synchronized (segment) {
+                Entry entry = segment.get(id);
+                if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+                    hits.increment();
+                    return entry.json;
+                }
+                if (entry != null) segment.remove(id);
+            }
+            misses.increment();
+            return null;
+        }
+        
+        // Call before loading a row from the database; pass the result to putIfUnchanged
+        long readToken(int id) {
+            Segment segment = segment(id);
+            synchronized (segment) {
+                return segment.generation;
+            }
+        }
+        
+        void putIfUnchanged(int id, byte[] json, long token) {
+            Segment segment = segment(id);
+            synchronized (segment) {
+                if (segment.generation == token) segment.put(id, new Entry(json, System.currentTimeMillis() + ttlMillis));
+            }
+        }
+        
+        // Write-through from handlePost/handlePut
+        void put(int id, byte[] json) {
+            Segment segment = segment(id);
+            synchronized (segment) {
+                segment.generation++;
+                segment.put(id, new Entry(json, System.currentTimeMillis() + ttlMillis));
+            }
+        }
+        
+        void invalidate(int id) {
+            Segment segment = segment(id);
+            synchronized (segment) {
+                segment.generation++;
+                segment.remove(id);
+            }
+        }
+        
+        int size() {
+            int size = 0;
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    size += segment.size();
+                }
+            }
+            return size;
+        }
+        
+        String statsJson() {
+            return String.format("{\"size\":%d,\"hits\":%d,\"misses\":%d,\"evictions\":%d}",
+                size(), hits.sum(), misses.sum(), evictions.sum());
+        }
+    }
+    
+    // Serialized GET /api/students pages for the current collection version, keyed by query string.
+    // Any write bumps the version, which empties the cache on next access.
+    static class ListCache {
+        static class Entry {
+            final byte[] json;
+            final String nextAfter;
+            
+            Entry(byte[] json, String nextAfter) {
+                this.json = json; this.nextAfter = nextAfter;
+            }
+        }
+        
+        private final int maxEntries;
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long version = -1;
+        
+        ListCache(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+        
+        synchronized Entry get(long version, String query) {
+            return this.version == version ? entries.get(query) : null;
+        }
+        
+        synchronized void put(long version, String query, Entry entry) {
+            // A response computed against an older version is already stale
+            if (version < this.version) return;
+            if (version > this.version) {
+                entries.clear();
+                this.version = version;
+            }
+            entries.put(query, entry);
+            if (entries.size() > maxEntries) {
+                Iterator<String> eldest = entries.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+    
+    // Lock-free log-linear latency histogram (HDR-style): exact below 64us, then 32 linear sub-buckets per power of
+    // two up to ~2 minutes, so quantiles come out within ~3%. Recording is one atomic increment and one LongAdder add.
+    static final class LatencyHistogram {
+        private static final int LINEAR = 64, SUB_BUCKETS = 32, MAGNITUDES = 22;
+        // Cumulative buckets exposed to Prometheus; quantiles are computed from the full resolution
+        private static final double[] BOUNDS_SECONDS = {0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+        private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+        
+        private final AtomicLongArray counts = new AtomicLongArray(LINEAR + MAGNITUDES * SUB_BUCKETS);
+        private final LongAdder sumNanos = new LongAdder();
+        
+        void record(long nanos) {
+            counts.incrementAndGet(index(Math.max(0, nanos / 1000)));
+            sumNanos.add(nanos);
+        }
+        
+        private static int index(long micros) {
+            if (micros < LINEAR) return (int) micros;
+            // Shift so the value keeps its top 6 bits (32..63)
+            int shift = 63 - Long.numberOfLeadingZeros(micros) - 5;
+            return Math.min(LINEAR + (shift - 1) * SUB_BUCKETS + (int) (micros >>> shift) - SUB_BUCKETS, LINEAR + MAGNITUDES * SUB_BUCKETS - 1);
+        }
+        
+        // Exclusive upper bound of a bucket's values, in microseconds
+        private static long upperBoundMicros(int index) {
+            if (index < LINEAR) return index + 1;
+            int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+            long top = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+            return (top + 1) << shift;
+        }
+        
+        // Appends _bucket/_sum/_count lines, plus a <name>_quantile gauge family line per quantile if quantiles is non-null
+        void writePrometheus(StringBuilder out, String name, String labels, StringBuilder quantiles) {
+            long[] snapshot = new long[counts.length()];
+            long count = 0;
+            for (int i = 0; i < snapshot.length; i++) count += snapshot[i] = counts.get(i);
+            String prefix = labels.isEmpty() ? "{" : "{" + labels + ",";
+            int index = 0;
+            long cumulative = 0;
+            for (double bound : BOUNDS_SECONDS) {
+                long boundMicros = Math.round(bound * 1_000_000);
+                while (index < snapshot.length && upperBoundMicros(index) <= boundMicros) cumulative += snapshot[index++];
+                out.append(name).append("_bucket").append(prefix).append("le=\"").append(java.math.BigDecimal.valueOf(bound).stripTrailingZeros().toPlainString())
+                    .append("\"} ").append(cumulative).append('\n');
+            }
+            out.append(name).append("_bucket").append(prefix).append("le=\"+Inf\"} ").append(count).append('\n');
+            out.append(name).append("_sum").append(labels.isEmpty() ? "" : "{" + labels + "}").append(' ').append(sumNanos.sum() / 1e9).append('\n');
+            out.append(name).append("_count").append(labels.isEmpty() ? "" : "{" + labels + "}").append(' ').append(count).append('\n');
+            if (quantiles == null || count == 0) return;
+            for (double quantile : QUANTILES) {
+                quantiles.append(name).append("_quantile").append(prefix).append("quantile=\"").append(quantile).append("\"} ")
+                    .append(quantileMicros(snapshot, count, quantile) / 1e6).append('\n');
+            }
+        }
+        
+        long count() {
+            long count = 0;
+            for (int i = 0; i < counts.length(); i++) count += counts.get(i);
+            return count;
+        }
+        
+        long meanNanos() {
+            long count = count();
+            return count == 0 ? 0 : sumNanos.sum() / count;
+        }
+        
+        // Upper bound of the bucket holding the quantile (0..1), or 0 if nothing was recorded
+        long quantileNanos(double quantile) {
+            long[] snapshot = new long[counts.length()];
+            long count = 0;
+            for (int i = 0; i < snapshot.length; i++) count += snapshot[i] = counts.get(i);
+            return count == 0 ? 0 : quantileMicros(snapshot, count, quantile) * 1000;
+        }
+        
+        private static long quantileMicros(long[] snapshot, long count, double quantile) {
+            long rank = Math.max(1, (long) Math.ceil(count * quantile)), seen = 0;
+            int i = 0;
+            while ((seen += snapshot[i]) < rank) i++;
+            return upperBoundMicros(i);
+        }
+    }
+    
+    // Request metrics for /metrics. The filter opens a per-request timing on the handling thread; the pool adds
+    // connection wait and statement execution time to it, and the rest of the handler's time is attributed to the app
+    // (parsing, serialization, row reading and writing the response).
+    static final class Metrics {
+        // Sub-routes that get their own series; anything else under a context is folded into one label
+        private static final Set<String> KNOWN_SUBROUTES = Set.of("availability", "events", "export", "import", "refresh", "search", "stats");
+        static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+        static final LatencyHistogram DB_STATEMENTS = new LatencyHistogram();
+        static final LatencyHistogram CONNECTION_WAIT = new LatencyHistogram();
+        private static final ConcurrentHashMap<String, RouteMetrics> ROUTES = new ConcurrentHashMap<>();
+        
+        static final class RequestTiming {
+            long dbNanos, waitNanos;
+        }
+        
+        static final class RouteMetrics {
+            final String labels;
+            final LatencyHistogram latency = new LatencyHistogram();
+            final LongAdder responseBytes = new LongAdder(), dbNanos = new LongAdder(), waitNanos = new LongAdder(),
+                            appNanos = new LongAdder(), clientErrors = new LongAdder(), serverErrors = new LongAdder();
+            
+            RouteMetrics(String route, String method) {
+                this.labels = "route=\"" + route + "\",method=\"" + method + "\"";
+            }
+        }
+        
+        static void recordStatement(long nanos) {
+            DB_STATEMENTS.record(nanos);
+            RequestTiming timing = CURRENT.get();
+            if (timing != null) timing.dbNanos += nanos;
+        }
+        
+        static void recordConnectionWait(long nanos) {
+            CONNECTION_WAIT.record(nanos);
+            RequestTiming timing = CURRENT.get();
+            if (timing != null) timing.waitNanos += nanos;
+        }
+        
+        // Bounded label: the context path, plus {id} or a known sub-route for the API contexts
+        static String route(String contextPath, String path) {
+            if (contextPath.equals("/")) return "static";
+            if (path.length() <= contextPath.length() + 1) return contextPath;
+            String rest = path.substring(contextPath.length() + 1);
+            if (KNOWN_SUBROUTES.contains(rest)) return contextPath + "/" + rest;
+            for (int i = 0; i < rest.length(); i++) {
+                if (!Character.isDigit(rest.charAt(i))) return contextPath + "/{other}";
+            }
+            return contextPath + "/{id}";
+        }
+        
+        static void record(String route, String method, int status, long nanos, long bytes, RequestTiming timing) {
+            // Methods are client-controlled too; anything unexpected shares one series
+            if (!method.equals("GET") && !method.equals("POST") && !method.equals("PUT") && !method.equals("DELETE")
+                    && !method.equals("HEAD") && !method.equals("OPTIONS")) method = "OTHER";
+            RouteMetrics metrics = ROUTES.get(method + " " + route);
+            if (metrics == null) {
+                String routeKey = route, methodKey = method;
+                metrics = ROUTES.computeIfAbsent(method + " " + route, key -> new RouteMetrics(routeKey, methodKey));
+            }
+            metrics.latency.record(nanos);
+            metrics.responseBytes.add(bytes);
+            metrics.dbNanos.add(timing.dbNanos);
+            metrics.waitNanos.add(timing.waitNanos);
+            metrics.appNanos.add(Math.max(0, nanos - timing.dbNanos - timing.waitNanos));
+            // -1 means the handler threw before responding
+            if (status >= 500 || status < 0) metrics.serverErrors.increment();
+            else if (status >= 400) metrics.clientErrors.increment();
+        }
+        
+        // Prometheus text exposition format 0.0.4
+        static String render() {
+            StringBuilder out = new StringBuilder(16 * 1024);
+            StringBuilder quantiles = new StringBuilder(2048);
+            List<RouteMetrics> routes = new ArrayList<>(new TreeMap<>(ROUTES).values());
+            
+            out.append("# HELP studentapp_http_request_duration_seconds Time from request dispatch to handler return.\n");
+            out.append("# TYPE studentapp_http_request_duration_seconds histogram\n");
+            for (RouteMetrics route : routes) route.latency.writePrometheus(out, "studentapp_http_request_duration_seconds", route.labels, quantiles);
+            out.append("# HELP studentapp_http_request_duration_seconds_quantile Request duration quantiles since start (~3% resolution).\n");
+            out.append("# TYPE studentapp_http_request_duration_seconds_quantile gauge\n").append(quantiles);
+            counter(out, routes, "studentapp_http_response_bytes_total", "Response body bytes written.", route -> route.responseBytes.sum());
+            counter(out, routes, "studentapp_http_client_errors_total", "Responses with a 4xx status.", route -> route.clientErrors.sum());
+            counter(out, routes, "studentapp_http_server_errors_total", "Responses with a 5xx status or a handler failure.", route -> route.serverErrors.sum());
+            seconds(out, routes, "studentapp_http_request_db_seconds_total", "Time spent executing statements.", route -> route.dbNanos.sum());
+            seconds(out, routes, "studentapp_http_request_connection_wait_seconds_total", "Time spent waiting for a pooled connection.", route -> route.waitNanos.sum());
+            seconds(out, routes, "studentapp_http_request_app_seconds_total", "Time outside the database: parsing, serialization, row reading and response writing.", route -> route.appNanos.sum());
+            
+            out.append("# HELP studentapp_db_statement_duration_seconds Statement execution time (execute*, commit, rollback).\n");
+            out.append("# TYPE studentapp_db_statement_duration_seconds histogram\n");
+            DB_STATEMENTS.writePrometheus(out, "studentapp_db_statement_duration_seconds", "", null);
+            out.append("# HELP studentapp_db_connection_wait_seconds Time to obtain a pooled connection, including opening one.\n");
+            out.append("# TYPE studentapp_db_connection_wait_seconds histogram\n");
+            CONNECTION_WAIT.writePrometheus(out, "studentapp_db_connection_wait_seconds", "", null);
+            POOL.writePrometheus(out);
+            REPLICAS.writePrometheus(out);
+            TombstonePurge.writePrometheus(out);
+            CHANGE_FEED.writePrometheus(out);
+            SEARCH.writePrometheus(out);
+            COURSE_STATS.writePrometheus(out);
+            Admission.writePrometheus(out);
+            return out.toString();
+        }
+        
+        private static void counter(StringBuilder out, List<RouteMetrics> routes, String name, String help,
+                                    java.util.function.ToLongFunction<RouteMetrics> value) {
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            out.append("# TYPE ").append(name).append(" counter\n");
+            for (RouteMetrics route : routes) out.append(name).append('{').append(route.labels).append("} ").append(value.applyAsLong(route)).append('\n');
+        }
+        
+        private static void seconds(StringBuilder out, List<RouteMetrics> routes, String name, String help,
+                                    java.util.function.ToLongFunction<RouteMetrics> nanos) {
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            out.append("# TYPE ").append(name).append(" counter\n");
+            for (RouteMetrics route : routes) out.append(name).append('{').append(route.labels).append("} ").append(nanos.applyAsLong(route) / 1e9).append('\n');
+        }
+    }
+    
+    // Times every request on its context and counts the response bytes actually written
+    static class MetricsFilter extends Filter {
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            long start = System.nanoTime();
+            CountingOutputStream body = new CountingOutputStream(exchange.getResponseBody());
+            exchange.setStreams(null, body);
+            Metrics.RequestTiming timing = new Metrics.RequestTiming();
+            Metrics.CURRENT.set(timing);
+            try {
+                chain.doFilter(exchange);
+            } finally {
+                Metrics.CURRENT.remove();
+                Metrics.record(Metrics.route(exchange.getHttpContext().getPath(), exchange.getRequestURI().getPath()),
+                    exchange.getRequestMethod(), exchange.getResponseCode(), System.nanoTime() - start, body.count, timing);
+            }
+        }
+        
+        public String description() {
+            return "Request metrics";
+        }
+    }
+    
+    static class CountingOutputStream extends FilterOutputStream {
+        long count;
+        
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+    
+    // Admission control for the API contexts. Requests are rejected up front, with Retry-After, rather than queued
+    // behind the connection pool: 503 when the concurrency limit for their lane is reached, 429 when the client has
+    // used up its token bucket. The overall limit adapts to database latency (AIMD): it shrinks when requests spend
+    // longer than admission.targetDbMillis in statements and connection waits, and grows back while they do not.
+    static final class Admission {
+        // Lanes in priority order: writes and bulk transfers may only use part of the limit, so reads are
+        // still admitted when the others are saturated
+        enum Lane {
+            READ(1.0, Integer.MAX_VALUE, 1), WRITE(0.8, Integer.MAX_VALUE, 1), BULK(0.5, 1, 10);
+            
+            final String label = name().toLowerCase();
+            final double share;
+            final int maxConcurrent, cost;
+            final AtomicInteger inflight = new AtomicInteger();
+            final LongAdder admitted = new LongAdder(), rejectedBusy = new LongAdder(), rejectedRate = new LongAdder();
+            
+            Lane(double share, int maxConcurrent, int cost) {
+                String prefix = "admission." + name().toLowerCase();
+                this.share = Double.parseDouble(System.getProperty(prefix + ".share", String.valueOf(share)));
+                this.maxConcurrent = Integer.getInteger(prefix + ".maxConcurrent", maxConcurrent);
+                this.cost = Integer.getInteger(prefix + ".cost", cost);
+            }
+        }
+        
+        static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("admission.enabled", "true"));
+        private static final int MIN_LIMIT = Integer.getInteger("admission.minLimit", 2);
+        private static final int MAX_LIMIT = Integer.getInteger("admission.maxLimit", 200);
+        private static final long TARGET_DB_NANOS = Long.getLong("admission.targetDbMillis", 50) * 1_000_000;
+        // At most one decrease per window, so a burst of slow requests counts as one congestion signal
+        private static final long DECREASE_WINDOW_NANOS = 100_000_000;
+        private static final double CLIENT_RATE = Double.parseDouble(System.getProperty("admission.client.ratePerSecond", "0"));
+        private static final double CLIENT_BURST = Double.parseDouble(System.getProperty("admission.client.burst", "100"));
+        private static final boolean TRUST_FORWARDED_FOR = Boolean.getBoolean("admission.trustForwardedFor");
+        
+        private static final AtomicInteger INFLIGHT = new AtomicInteger();
+        private static volatile double limit = Math.min(MAX_LIMIT, Math.max(MIN_LIMIT,
+            Integer.getInteger("admission.initialLimit", Integer.getInteger("db.pool.maxSize", 10) * 2)));
+        private static long lastDecrease;   // guarded by Admission.class
+        private static final ConcurrentHashMap<String, TokenBucket> CLIENTS = new ConcurrentHashMap<>();
+        
+        static final class TokenBucket {
+            private double tokens = CLIENT_BURST;
+            private long refilledAt = System.nanoTime();
+            
+            // 0 if the tokens were taken, otherwise the seconds until enough have accumulated
+            synchronized long take(int cost) {
+                long now = System.nanoTime();
+                tokens = Math.min(CLIENT_BURST, tokens + (now - refilledAt) / 1e9 * CLIENT_RATE);
+                refilledAt = now;
+                if (tokens >= cost) {
+                    tokens -= cost;
+                    return 0;
+                }
+                return Math.max(1, (long) Math.ceil((cost - tokens) / CLIENT_RATE));
+            }
+            
+            synchronized boolean idleSince(long nanos) {
+                return refilledAt < nanos;
+            }
+        }
+        
+        static Lane lane(String method, String path) {
+            if (path.equals("/api/students/import") || path.equals("/api/students/export")) return Lane.BULK;
+            return method.equals("GET") || method.equals("HEAD") ? Lane.READ : Lane.WRITE;
+        }
+        
+        // 0 if the client may proceed, otherwise the Retry-After seconds for a 429
+        static long takeTokens(HttpExchange exchange, Lane lane) {
+            if (CLIENT_RATE <= 0) return 0;
+            TokenBucket bucket = CLIENTS.computeIfAbsent(clientKey(exchange), key -> new TokenBucket());
+            long retryAfter = bucket.take(lane.cost);
+            if (retryAfter > 0) lane.rejectedRate.increment();
+            return retryAfter;
+        }
+        
+        private static String clientKey(HttpExchange exchange) {
+            if (TRUST_FORWARDED_FOR) {
+                String forwarded = exchange.getRequestHeaders().getFirst("X-Forwarded-For");
+                if (forwarded != null && !forwarded.isBlank()) {
+                    int comma = forwarded.indexOf(',');
+                    return (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+                }
+            }
+            return exchange.getRemoteAddress().getAddress().getHostAddress();
+        }
+        
+        // Returns the in-flight count seen on admission, or -1 if the lane's share of the limit is in use
+        static int tryAcquire(Lane lane) {
+            int ceiling = Math.max(1, (int) (limit * lane.share));
+            int total = INFLIGHT.incrementAndGet();
+            if (total > ceiling) {
+                INFLIGHT.decrementAndGet();
+                lane.rejectedBusy.increment();
+                return -1;
+            }
+            if (lane.inflight.incrementAndGet() > lane.maxConcurrent) {
+                lane.inflight.decrementAndGet();
+                INFLIGHT.decrementAndGet();
+                lane.rejectedBusy.increment();
+                return -1;
+            }
+            lane.admitted.increment();
+            return total;
+        }
+        
+        static void release(Lane lane, int inflightOnAdmission, Metrics.RequestTiming timing) {
+            lane.inflight.decrementAndGet();
+            INFLIGHT.decrementAndGet();
+            // Bulk transfers spend long in the database by design and say nothing about congestion
+            if (lane == Lane.BULK || timing == null) return;
+            if (timing.dbNanos + timing.waitNanos > TARGET_DB_NANOS) decrease();
+            // Only grow while the limit is actually being used; otherwise it would drift to the maximum when idle
+            else if (inflightOnAdmission >= limit / 2) increase();
+        }
+        
+        private static synchronized void decrease() {
+            long now = System.nanoTime();
+            if (now - lastDecrease < DECREASE_WINDOW_NANOS) return;
+            lastDecrease = now;
+            limit = Math.max(MIN_LIMIT, limit * 0.9);
+        }
+        
+        private static synchronized void increase() {
+            limit = Math.min(MAX_LIMIT, limit + 1 / limit);
+        }
+        
+        // Forgets clients that have been quiet long enough for their bucket to have refilled anyway
+        static void schedule() {
+            if (!ENABLED || CLIENT_RATE <= 0) return;
+            // Behind a proxy or NAT every client shares one socket address, and so one bucket
+            if (!TRUST_FORWARDED_FOR) {
+                System.err.println("⚠️ Per-client rate limit keys on the socket address; clients behind one proxy or NAT share "
+                    + CLIENT_RATE + " requests/s (set admission.trustForwardedFor=true behind a trusted proxy)");
+            }
+            long idleNanos = (long) (CLIENT_BURST / CLIENT_RATE * 1e9) + 1_000_000_000L;
+            SCHEDULER.scheduleWithFixedDelay(() -> {
+                long cutoff = System.nanoTime() - idleNanos;
+                CLIENTS.values().removeIf(bucket -> bucket.idleSince(cutoff));
+            }, 60, 60, TimeUnit.SECONDS);
+        }
+        
+        static void writePrometheus(StringBuilder out) {
+            if (!ENABLED) return;
+            out.append("# HELP studentapp_admission_limit Current adaptive concurrency limit for API requests.\n");
+            out.append("# TYPE studentapp_admission_limit gauge\n");
+            out.append("studentapp_admission_limit ").append(String.format(Locale.ROOT, "%.2f", limit)).append('\n');
+            out.append("# HELP studentapp_admission_inflight Admitted API requests in progress.\n");
+            out.append("# TYPE studentapp_admission_inflight gauge\n");
+            for (Lane lane : Lane.values()) out.append("studentapp_admission_inflight{lane=\"").append(lane.label).append("\"} ").append(lane.inflight.get()).append('\n');
+            out.append("# HELP studentapp_admission_requests_total API requests by admission decision.\n");
+            out.append("# TYPE studentapp_admission_requests_total counter\n");
+            for (Lane lane : Lane.values()) {
+                out.append("studentapp_admission_requests_total{lane=\"").append(lane.label).append("\",result=\"admitted\"} ").append(lane.admitted.sum()).append('\n');
+                out.append("studentapp_admission_requests_total{lane=\"").append(lane.label).append("\",result=\"busy\"} ").append(lane.rejectedBusy.sum()).append('\n');
+                out.append("studentapp_admission_requests_total{lane=\"").append(lane.label).append("\",result=\"rate_limited\"} ").append(lane.rejectedRate.sum()).append('\n');
+            }
+            out.append("# HELP studentapp_admission_clients Clients with a rate-limit bucket.\n");
+            out.append("# TYPE studentapp_admission_clients gauge\n");
+            out.append("studentapp_admission_clients ").append(CLIENTS.size()).append('\n');
+        }
+    }
+    
+    // Goes after MetricsFilter, which supplies the per-request database timing the adaptive limit feeds on
+    static class AdmissionFilter extends Filter {
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            String method = exchange.getRequestMethod(), path = exchange.getRequestURI().getPath();
+            // Preflights are free; event streams are long-lived and capped separately by events.maxSubscribers
+            if (!Admission.ENABLED || method.equals("OPTIONS") || path.equals("/api/students/events")) {
+                chain.doFilter(exchange);
+                return;
+            }
+            Admission.Lane lane = Admission.lane(method, path);
+            long retryAfter = Admission.takeTokens(exchange, lane);
+            if (retryAfter > 0) {
+                reject(exchange, 429, retryAfter, "{\"error\":\"Too many requests, please slow down\"}");
+                return;
+            }
+            int inflight = Admission.tryAcquire(lane);
+            if (inflight < 0) {
+                reject(exchange, 503, 1, "{\"error\":\"Server is busy, please retry shortly\"}");
+                return;
+            }
+            try {
+                chain.doFilter(exchange);
+            } finally {
+                Admission.release(lane, inflight, Metrics.CURRENT.get());
+            }
+        }
+        
+        private static void reject(HttpExchange exchange, int status, long retryAfter, String json) throws IOException {
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfter));
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        }
+        
+        public String description() {
+            return "Admission control";
+        }
+    }
+    
+    // Immutable snapshot of the courses table: the pre-serialized JSON served by CourseHandler and an
+    // id-indexed name lookup for the write paths. Refreshing swaps in a whole new snapshot.
+    static final class CourseCatalog {
+        static final CourseCatalog EMPTY = new CourseCatalog(Collections.emptyList());
+        
+        final List<Course> courses;
+        final byte[] json;
+        private final String[] namesById;
+        
+        private CourseCatalog(List<Course> courses) {
+            this.courses = Collections.unmodifiableList(courses);
+            JsonWriter json = new JsonWriter(1024).beginArray();
+            int maxId = 0;
+            for (Course course : courses) {
+                course.writeJson(json);
+                maxId = Math.max(maxId, course.id);
+            }
+            this.json = json.endArray().toByteArray();
+            this.namesById = new String[maxId + 1];
+            for (Course course : courses) namesById[course.id] = course.courseName;
+        }
+        
+        static CourseCatalog load() throws SQLException {
+            try (Connection conn = POOL.getConnection()) {
+                ResultSet rs = conn.createStatement().executeQuery("SELECT id, course_name FROM courses ORDER BY course_name");
+                List<Course> courses = new ArrayList<>();
+                while (rs.next()) courses.add(new Course(rs.getInt("id"), rs.getString("course_name")));
+                return new CourseCatalog(courses);
+            }
+        }
+        
+        String nameOf(int id) {
+            return id >= 0 && id < namesById.length ? namesById[id] : null;
+        }
+    }
+    
+    static void refreshCourses() throws SQLException {
+        COURSES = CourseCatalog.load();
+        // Student rows embed course names
+        STUDENTS_VERSION.incrementAndGet();
+        CHANGE_FEED.publishReset();
+    }
+    
+    // Course name for a student row; an unknown id means the snapshot is stale, so reload it once
+    static String courseName(int courseId) {
+        String name = COURSES.nameOf(courseId);
+        if (name == null) {
+            try {
+                refreshCourses();
+                name = COURSES.nameOf(courseId);
+            } catch (SQLException e) {
+                System.err.println("⚠️ Course catalog refresh failed: " + e.getMessage());
+            }
+        }
+        return name == null ? "" : name;
+    }
+    
+    // Live students per course and birth year for GET /api/courses/stats. Seeded from one aggregate query, moved by
+    // this node's writes as they happen, and reconciled with the database every stats.reconcileSeconds, which is also
+    // how other nodes' writes show up. Each write holds the read lock from its statement until its counters have
+    // moved, so a reconcile can always tell whether its aggregate and a local write overlapped.
+    static final class CourseStats {
+        static final String AGGREGATE =
+            "SELECT course_id, CAST(EXTRACT(YEAR FROM date_of_birth) AS INTEGER) AS birth_year, COUNT(*) AS students " +
+            "FROM students WHERE is_deleted = 0 GROUP BY course_id, birth_year";
+        // After this many reconciles in a row discarded for overlapping writes, the next one blocks writes instead
+        private static final int MAX_SKIPS = 3;
+        
+        // Moves the counters for the row a write returned
+        interface RowCounter {
+            void count(ResultSet row) throws SQLException;
+        }
+        
+        private final ConcurrentHashMap<Integer, ConcurrentHashMap<Integer, LongAdder>> courses = new ConcurrentHashMap<>();
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final AtomicInteger writesInFlight = new AtomicInteger();
+        private final AtomicLong writesDone = new AtomicLong();
+        private final LongAdder reconciles = new LongAdder(), skipped = new LongAdder(), corrections = new LongAdder();
+        private int skipsInARow;
+        private volatile boolean ready;
+        
+        // Brackets a student write from its statement until its counters have moved; never around request parsing
+        // or validation, since a blocking reconcile waits for every bracket to close
+        void beginWrite() {
+            lock.readLock().lock();
+            writesInFlight.incrementAndGet();
+        }
+        
+        void endWrite() {
+            writesDone.incrementAndGet();
+            writesInFlight.decrementAndGet();
+            lock.readLock().unlock();
+        }
+        
+        // Executes a single-row write inside the bracket. Returns the result positioned on its row, or null if the
+        // statement matched nothing.
+        ResultSet write(PreparedStatement stmt, RowCounter counter) throws SQLException {
+            beginWrite();
+            try {
+                ResultSet rs = stmt.executeQuery();
+                if (!rs.next()) return null;
+                counter.count(rs);
+                return rs;
+            } finally {
+                endWrite();
+            }
+        }
+        
+        // Only between beginWrite and endWrite
+        void add(int courseId, int birthYear, long delta) {
+            courses.computeIfAbsent(courseId, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(birthYear, year -> new LongAdder()).add(delta);
+        }
+        
+        // A PUT that changed neither the course nor the birth year leaves the counters alone
+        void move(int oldCourseId, int oldBirthYear, int courseId, int birthYear) {
+            if (oldCourseId == courseId && oldBirthYear == birthYear) return;
+            add(oldCourseId, oldBirthYear, -1);
+            add(courseId, birthYear, 1);
+        }
+        
+        boolean isReady() {
+            return ready;
+        }
+        
+        static int birthYear(ResultSet rs, String column) throws SQLException {
+            return rs.getDate(column).toLocalDate().getYear();
+        }
+        
+        // The first run, and any run after MAX_SKIPS discarded ones, holds off writes for the length of the aggregate
+        // so it is certain to apply. Otherwise writes carry on, and the result is discarded (false) if one overlapped
+        // the query, since there is no telling whether the aggregate counted it.
+        synchronized boolean reconcile() throws SQLException {
+            boolean blocking = !ready || skipsInARow >= MAX_SKIPS;
+            // Taken before the lock: writers waiting on it may hold pool connections
+            try (Connection conn = POOL.getConnection()) {
+                if (blocking) {
+                    lock.writeLock().lock();
+                    try {
+                        apply(aggregate(conn));
+                        return true;
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                }
+                long doneBefore = writesDone.get();
+                if (writesInFlight.get() == 0) {
+                    Map<Integer, Map<Integer, Long>> fresh = aggregate(conn);
+                    lock.writeLock().lock();
+                    try {
+                        if (writesInFlight.get() == 0 && writesDone.get() == doneBefore) {
+                            apply(fresh);
+                            return true;
+                        }
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                }
+                skipsInARow++;
+                skipped.increment();
+                return false;
+            }
+        }
+        
+        private static Map<Integer, Map<Integer, Long>> aggregate(Connection conn) throws SQLException {
+            Map<Integer, Map<Integer, Long>> fresh = new HashMap<>();
+            ResultSet rs = conn.createStatement().executeQuery(AGGREGATE);
+            while (rs.next()) {
+                fresh.computeIfAbsent(rs.getInt("course_id"), id -> new HashMap<>()).put(rs.getInt("birth_year"), rs.getLong("students"));
+            }
+            return fresh;
+        }
+        
+        // Under the write lock
+        private void apply(Map<Integer, Map<Integer, Long>> fresh) {
+            // Buckets missing from the result have dropped to zero
+            for (Map.Entry<Integer, ConcurrentHashMap<Integer, LongAdder>> course : courses.entrySet()) {
+                for (Map.Entry<Integer, LongAdder> year : course.getValue().entrySet()) {
+                    fresh.computeIfAbsent(course.getKey(), id -> new HashMap<>()).putIfAbsent(year.getKey(), 0L);
+                }
+            }
+            long changed = 0;
+            for (Map.Entry<Integer, Map<Integer, Long>> course : fresh.entrySet()) {
+                ConcurrentHashMap<Integer, LongAdder> years = courses.computeIfAbsent(course.getKey(), id -> new ConcurrentHashMap<>());
+                for (Map.Entry<Integer, Long> year : course.getValue().entrySet()) {
+                    LongAdder counter = years.computeIfAbsent(year.getKey(), y -> new LongAdder());
+                    long drift = year.getValue() - counter.sum();
+                    if (drift == 0) continue;
+                    counter.add(drift);
+                    changed++;
+                }
+            }
+            // The first run seeds the counters; only later differences are drift
+            if (ready) corrections.add(changed);
+            reconciles.increment();
+            skipsInARow = 0;
+            ready = true;
+        }
+        
+        // {"total":N,"courses":[{"id","courseName","students","birthYears":{"yyyy":n}}]}, catalog courses first
+        byte[] toJson(CourseCatalog catalog) {
+            JsonWriter json = JsonWriter.reused(4096).beginObject();
+            long total = 0;
+            for (ConcurrentHashMap<Integer, LongAdder> years : courses.values()) {
+                for (LongAdder counter : years.values()) total += counter.sum();
+            }
+            json.name("total").value(total).name("courses").beginArray();
+            Set<Integer> listed = new HashSet<>();
+            for (Course course : catalog.courses) {
+                listed.add(course.id);
+                writeCourse(json, course.id, course.courseName);
+            }
+            // Students of a course this node's catalog has not loaded yet
+            for (Integer courseId : new TreeSet<>(courses.keySet())) {
+                if (!listed.contains(courseId)) writeCourse(json, courseId, null);
+            }
+            return json.endArray().endObject().toByteArray();
+        }
+        
+        private void writeCourse(JsonWriter json, int courseId, String courseName) {
+            TreeMap<Integer, Long> byYear = new TreeMap<>();
+            long students = 0;
+            for (Map.Entry<Integer, LongAdder> year : courses.getOrDefault(courseId, new ConcurrentHashMap<>()).entrySet()) {
+                long count = year.getValue().sum();
+                if (count == 0) continue;
+                byYear.put(year.getKey(), count);
+                students += count;
+            }
+            json.beginObject().name("id").value(courseId).name("courseName").value(courseName)
+                .name("students").value(students).name("birthYears").beginObject();
+            for (Map.Entry<Integer, Long> year : byYear.entrySet()) json.name(String.valueOf(year.getKey())).value(year.getValue());
+            json.endObject().endObject();
+        }
+        
+        void writePrometheus(StringBuilder out) {
+            out.append("# HELP studentapp_course_stats_reconciles_total Course statistics reconciled with the database.\n");
+            out.append("# TYPE studentapp_course_stats_reconciles_total counter\n");
+            out.append("studentapp_course_stats_reconciles_total ").append(reconciles.sum()).append('\n');
+            out.append("# HELP studentapp_course_stats_reconciles_skipped_total Reconciles discarded because a write overlapped the query.\n");
+            out.append("# TYPE studentapp_course_stats_reconciles_skipped_total counter\n");
+            out.append("studentapp_course_stats_reconciles_skipped_total ").append(skipped.sum()).append('\n');
+            out.append("# HELP studentapp_course_stats_corrections_total Course/birth-year counters a reconcile found out of date.\n");
+            out.append("# TYPE studentapp_course_stats_corrections_total counter\n");
+            out.append("studentapp_course_stats_corrections_total ").append(corrections.sum()).append('\n');
+        }
+    }
+    
+    // Fans student changes out to Server-Sent Events subscribers. Recent frames are kept in a ring so a client
+    // reconnecting with Last-Event-ID gets what it missed; one that is further behind is told to reload instead.
+    static final class ChangeFeed {
+        // Marks a subscriber that was dropped for falling behind; its stream ends and the browser reconnects
+        static final byte[] CLOSE = new byte[0];
+        private static final int HISTORY = 1024;
+        private static final int SUBSCRIBER_QUEUE = 256;
+        
+        private final Set<BlockingQueue<byte[]>> subscribers = ConcurrentHashMap.newKeySet();
+        private final byte[][] history = new byte[HISTORY][];
+        // Ids continue from the clock so a Last-Event-ID from a previous run is never mistaken for one of ours
+        private final long firstId = System.currentTimeMillis();
+        private long lastId = firstId;
+        private volatile int maxSubscribers = Integer.MAX_VALUE;
+        private final LongAdder published = new LongAdder(), dropped = new LongAdder();
+        
+        void setMaxSubscribers(int maxSubscribers) {
+            this.maxSubscribers = maxSubscribers;
+        }
+        
+        // event is upsert (data is the student JSON), delete (data is {"id":N}) or reset (reload everything)
+        synchronized void publish(String event, byte[] data) {
+            long id = ++lastId;
+            byte[] frame = frame(id, event, data);
+            history[(int) (id % HISTORY)] = frame;
+            published.increment();
+            for (BlockingQueue<byte[]> queue : subscribers) {
+                if (!queue.offer(frame)) {
+                    subscribers.remove(queue);
+                    queue.clear();
+                    queue.offer(CLOSE);
+                    dropped.increment();
+                }
+            }
+        }
+        
+        void publishReset() {
+            publish("reset", "{}".getBytes(StandardCharsets.UTF_8));
+        }
+        
+        // Registers a subscriber with the frames it missed since lastEventId (-1 for a new client) already queued,
+        // or returns null when the subscriber limit is reached
+        synchronized BlockingQueue<byte[]> subscribe(long lastEventId) {
+            if (subscribers.size() >= maxSubscribers) return null;
+            BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(SUBSCRIBER_QUEUE + HISTORY);
+            if (lastEventId >= 0 && lastEventId != lastId) {
+                if (lastEventId < firstId || lastEventId > lastId || lastId - lastEventId > HISTORY) {
+                    queue.add(frame(lastId, "reset", "{}".getBytes(StandardCharsets.UTF_8)));
+                } else {
+                    for (long id = lastEventId + 1; id <= lastId; id++) queue.add(history[(int) (id % HISTORY)]);
+                }
+            }
+            subscribers.add(queue);
+            return queue;
+        }
+        
+        void unsubscribe(BlockingQueue<byte[]> queue) {
+            subscribers.remove(queue);
+        }
+        
+        private static byte[] frame(long id, String event, byte[] data) {
+            byte[] head = ("id: " + id + "\nevent: " + event + "\ndata: ").getBytes(StandardCharsets.UTF_8);
+            byte[] frame = Arrays.copyOf(head, head.length + data.length + 2);
+            System.arraycopy(data, 0, frame, head.length, data.length);
+            frame[frame.length - 2] = '\n';
+            frame[frame.length - 1] = '\n';
+            return frame;
+        }
+        
+        void writePrometheus(StringBuilder out) {
+            out.append("# HELP studentapp_events_subscribers Open /api/students/events streams.\n");
+            out.append("# TYPE studentapp_events_subscribers gauge\n");
+            out.append("studentapp_events_subscribers ").append(subscribers.size()).append('\n');
+            out.append("# HELP studentapp_events_published_total Change events published to subscribers.\n");
+            out.append("# TYPE studentapp_events_published_total counter\n");
+            out.append("studentapp_events_published_total ").append(published.sum()).append('\n');
+            out.append("# HELP studentapp_events_dropped_subscribers_total Subscribers disconnected for falling behind.\n");
+            out.append("# TYPE studentapp_events_dropped_subscribers_total counter\n");
+            out.append("studentapp_events_dropped_subscribers_total ").append(dropped.sum()).append('\n');
+        }
+    }
+    
+    // Another node changed a student: payload is "<bootId>:<upsert|delete|reset>:<id>". This node's own writes
+    // were already published when they were made.
+    static void applyRemoteStudentChange(String payload) {
+        String[] parts = payload.split(":", 3);
+        if (parts.length != 3 || parts[0].equals(BOOT_ID)) return;
+        REPLICAS.recordRemoteWrite();
+        STUDENTS_VERSION.incrementAndGet();
+        // Only imports send reset; they add rows, so no cached student is stale
+        if (parts[1].equals("reset")) {
+            CHANGE_FEED.publishReset();
+            reloadSearchIndex();
+            return;
+        }
+        int id = Integer.parseInt(parts[2]);
+        STUDENT_CACHE.invalidate(id);
+        Student student = null;
+        if (parts[1].equals("upsert")) {
+            try {
+                student = StudentHandler.loadLive(id);
+            } catch (SQLException e) {
+                System.err.println("⚠️ Changed student " + id + " not loaded: " + e.getMessage());
+                CHANGE_FEED.publishReset();
+                return;
+            }
+        }
+        if (student == null) {
+            UNIQUE_KEYS.remove(id);
+            SEARCH.remove(id);
+            CHANGE_FEED.publish("delete", ("{\"id\":" + id + "}").getBytes(StandardCharsets.UTF_8));
+        } else {
+            UNIQUE_KEYS.put(student.id, student.rollNumber, student.email, student.phoneNumber);
+            SEARCH.put(student);
+            CHANGE_FEED.publish("upsert", student.toJsonBytes());
+        }
+    }
+    
+    // Holds one dedicated connection LISTENing on Postgres notification channels and dispatches each payload
+    // to the handler registered for its channel. Reconnects with a short backoff if the connection drops.
+    static class NotificationListener implements Runnable {
+        private final Map<String, java.util.function.Consumer<String>> handlers = new ConcurrentHashMap<>();
+        
+        NotificationListener on(String channel, java.util.function.Consumer<String> handler) {
+            handlers.put(channel, handler);
+            return this;
+        }
+        
+        void start() {
+            Thread thread = new Thread(this, "pg-notification-listener");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                // Deliberately outside the pool: this connection is held for the life of the process
+                try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+                    for (String channel : handlers.keySet()) conn.createStatement().execute("LISTEN " + channel);
+                    org.postgresql.PGConnection pg = conn.unwrap(org.postgresql.PGConnection.class);
+                    while (!Thread.currentThread().isInterrupted()) {
+                        org.postgresql.PGNotification[] notifications = pg.getNotifications(10000);
+                        if (notifications == null) continue;
+                        for (org.postgresql.PGNotification notification : notifications) {
+                            java.util.function.Consumer<String> handler = handlers.get(notification.getName());
+                            if (handler == null) continue;
+                            try {
+                                handler.accept(notification.getParameter());
+                            } catch (RuntimeException e) {
+                                System.err.println("⚠️ Notification handler for " + notification.getName() + " failed: " + e.getMessage());
+                            }
+                        }
+                    }
+                } catch (SQLException e) {
+                    System.err.println("⚠️ Notification listener disconnected: " + e.getMessage());
+                    try {
+                        Thread.sleep(5000);
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Class.forName(System.getProperty("db.driver", "org.postgresql.Driver"));
+        
+        // Initialize database
+        initializeDatabase();
+        REPLICAS.start();
+        warmUniqueKeys();
+        warmSearchIndex();
+        scheduleCourseStats();
+        TombstonePurge.schedule();
+        Admission.schedule();
+        try {
+            refreshCourses();
+        } catch (SQLException e) {
+            System.err.println("⚠️ Course catalog not loaded: " + e.getMessage());
+        }
+        if (Boolean.parseBoolean(System.getProperty("db.listen", "true"))) {
+            new NotificationListener()
+                .on("courses_changed", payload -> {
+                    // Student rows from a replica embed course names too
+                    REPLICAS.recordRemoteWrite();
+                    try {
+                        refreshCourses();
+                    } catch (SQLException e) {
+                        System.err.println("⚠️ Course catalog refresh failed: " + e.getMessage());
+                    }
+                })
+                .on("students_changed", StudentWebApp::applyRemoteStudentChange)
+                .start();
+        }
+        
+        int port = Integer.getInteger("server.port", 7000);
+        // Responses go out as a header write followed by a body write; with Nagle's algorithm on, the body waits
+        // for the client's delayed ACK (~40ms per request). Read once when the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) System.setProperty("sun.net.httpserver.nodelay", "true");
+        // Pending connections beyond the backlog are refused by the OS instead of queueing without bound
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), Integer.getInteger("server.backlog", 256));
+        MetricsFilter metrics = new MetricsFilter();
+        server.createContext("/", new StaticHandler()).getFilters().add(metrics);
+        AdmissionFilter admission = new AdmissionFilter();
+        HttpContext students = server.createContext("/api/students", new StudentHandler());
+        students.getFilters().add(metrics);
+        students.getFilters().add(admission);
+        HttpContext courses = server.createContext("/api/courses", new CourseHandler());
+        courses.getFilters().add(metrics);
+        courses.getFilters().add(admission);
+        server.createContext("/api/stats", new StatsHandler()).getFilters().add(metrics);
+        server.createContext("/metrics", new MetricsHandler()).getFilters().add(metrics);
+        ExecutorService executor = createExecutor(System.getProperty("server.executor", "platform"));
+        // Each open event stream holds a worker thread; with a bounded pool, leave half of it for ordinary requests
+        int defaultSubscribers = executor instanceof ThreadPoolExecutor
+            ? Math.max(1, ((ThreadPoolExecutor) executor).getMaximumPoolSize() / 2) : 10000;
+        CHANGE_FEED.setMaxSubscribers(Integer.getInteger("events.maxSubscribers", defaultSubscribers));
+        server.setExecutor(executor);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            executor.shutdown();
+            REPLICAS.close();
+            POOL.close();
+        }));
+        
+        System.out.println("🚀 Student Management System running at:");
+        System.out.println("📱 http://localhost:" + port);
+        System.out.println("✅ Connected to database: " + DB_URL);
+    }
+    
+    // Loaded in the background so startup does not wait on the table size. Until then availability answers
+    // optimistically; the unique indexes still reject a duplicate write.
+    private static void warmUniqueKeys() {
+        SCHEDULER.execute(() -> {
+            try {
+                UNIQUE_KEYS.reload();
+                System.out.println("✅ Unique key index loaded: " + UNIQUE_KEYS.size() + " students");
+            } catch (SQLException e) {
+                System.err.println("⚠️ Unique key index not loaded: " + e.getMessage());
+            }
+        });
+        long refreshSeconds = Long.getLong("availability.refreshSeconds", 60);
+        SCHEDULER.scheduleWithFixedDelay(() -> {
+            try {
+                UNIQUE_KEYS.reload();
+            } catch (SQLException e) {
+                System.err.println("⚠️ Unique key index refresh failed: " + e.getMessage());
+            }
+        }, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+    
+    // Built in the background like the unique key index; /api/students/search answers 503 until it is ready
+    private static void warmSearchIndex() {
+        reloadSearchIndex();
+        long refreshSeconds = Long.getLong("search.refreshSeconds", 600);
+        SCHEDULER.scheduleWithFixedDelay(StudentWebApp::reloadSearchIndex, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+    
+    static void reloadSearchIndex() {
+        SCHEDULER.execute(() -> {
+            long start = System.nanoTime();
+            try {
+                SEARCH.reload();
+                System.out.println("✅ Search index loaded: " + SEARCH.size() + " students in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+            } catch (SQLException e) {
+                System.err.println("⚠️ Search index not loaded: " + e.getMessage());
+            }
+        });
+    }
+    
+    // Seeded in the background, then reconciled every stats.reconcileSeconds
+    private static void scheduleCourseStats() {
+        long reconcileSeconds = Long.getLong("stats.reconcileSeconds", 60);
+        SCHEDULER.scheduleWithFixedDelay(StudentWebApp::reconcileCourseStats, 0, reconcileSeconds, TimeUnit.SECONDS);
+    }
+    
+    private static void reconcileCourseStats() {
+        boolean seeding = !COURSE_STATS.isReady();
+        try {
+            if (COURSE_STATS.reconcile() && seeding) System.out.println("✅ Course statistics loaded");
+        } catch (SQLException e) {
+            System.err.println("⚠️ Course statistics " + (seeding ? "not loaded: " : "reconcile failed: ") + e.getMessage());
+        }
+    }
+    
+    // "virtual" runs each request on its own virtual thread (JDK 21+); "platform" uses a bounded worker pool
+    static ExecutorService createExecutor(String mode) {
+        if (mode.equals("virtual")) {
+            try {
+                ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                JsonWriter.reusePerThread = false;
+                System.out.println("🧵 Serving requests on virtual threads");
+                return executor;
+            } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+                System.err.println("⚠️ Virtual threads are not available on this JVM, falling back to a platform thread pool");
+            }
+        } else if (!mode.equals("platform")) {
+            throw new IllegalArgumentException("Unknown server.executor mode: " + mode + " (expected platform or virtual)");
+        }
+        
+        int threads = Integer.getInteger("server.threads", Runtime.getRuntime().availableProcessors() * 2);
+        int queueSize = Integer.getInteger("server.queueSize", 1000);
+        AtomicInteger counter = new AtomicInteger();
+        // When both the workers and the queue are full the dispatcher thread runs the request itself,
+        // which stops it from accepting more connections until capacity frees up
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueSize), r -> new Thread(r, "http-worker-" + counter.incrementAndGet()),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        System.out.println("🧵 Serving requests on " + threads + " platform threads");
+        return executor;
+    }
+    
+    // Advisory lock key ("STUDENT" in ASCII) shared by every node, serializing schema migrations
+    private static final long MIGRATION_LOCK = 0x53545544454E54L;
+    
+    private static final String[] SEED_COURSES = {"Computer Science and Engineering (CSE)", "Information Technology (IT)", 
+                                                  "Artificial Intelligence (AI)", "Data Science (DS)", "Machine Learning (ML)", 
+                                                  "Internet of Things (IOT)", "Civil Engineering (CE)", 
+                                                  "Electronics and Communication Engineering (ECE)", 
+                                                  "Electrical and Electronics Engineering (EEE)", "Mechanical Engineering (ME)", 
+                                                  "Cyber Security", "Block Chain Technology"};
+    
+    // A numbered schema change. Once released a migration must never be edited; later changes get a new version.
+    // An optional migration that fails is rolled back, left unrecorded and retried on the next start.
+    static final class Migration {
+        final int version;
+        final String description;
+        final boolean optional;
+        final String[] statements;
+        
+        Migration(int version, String description, boolean optional, String... statements) {
+            this.version = version; this.description = description; this.optional = optional; this.statements = statements;
+        }
+    }
+    
+    // Every statement is idempotent, so databases created by builds that predate schema_migrations adopt version 1 in place
+    private static final Migration[] MIGRATIONS = {
+        new Migration(1, "Create courses and students", false,
+            "CREATE TABLE IF NOT EXISTS courses (" +
+            "id SERIAL PRIMARY KEY, " +
+            "course_name VARCHAR(100) NOT NULL UNIQUE)",
+            "CREATE TABLE IF NOT EXISTS students (" +
+            "id SERIAL PRIMARY KEY, " +
+            "roll_number VARCHAR(20) NOT NULL, " +
+            "name VARCHAR(50) NOT NULL, " +
+            "email VARCHAR(100) NOT NULL, " +
+            "course_id INTEGER REFERENCES courses(id), " +
+            "date_of_birth DATE NOT NULL, " +
+            "phone_number VARCHAR(15) NOT NULL, " +
+            "is_deleted INTEGER DEFAULT 0 CHECK (is_deleted IN (0, 1)), " +
+            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
+            // Early builds declared these inline, which blocked reusing a soft-deleted student's roll number or email
+            "ALTER TABLE students DROP CONSTRAINT IF EXISTS students_roll_number_key",
+            "ALTER TABLE students DROP CONSTRAINT IF EXISTS students_email_key",
+            "CREATE INDEX IF NOT EXISTS idx_students_is_deleted ON students(is_deleted)",
+            // Uniqueness only applies to live rows, so a soft-deleted student's roll number, email and phone can be reused
+            "CREATE UNIQUE INDEX IF NOT EXISTS uq_students_roll_number ON students(roll_number) WHERE is_deleted = 0",
+            "CREATE UNIQUE INDEX IF NOT EXISTS uq_students_email ON students(email) WHERE is_deleted = 0",
+            "CREATE UNIQUE INDEX IF NOT EXISTS uq_students_phone_number ON students(phone_number) WHERE is_deleted = 0",
+            // Indexes backing the list filters; all keyed on id as well so keyset pages stay cheap
+            "CREATE INDEX IF NOT EXISTS idx_students_course_id ON students(course_id, id) WHERE is_deleted = 0",
+            "CREATE INDEX IF NOT EXISTS idx_students_roll_number_prefix ON students(roll_number text_pattern_ops) WHERE is_deleted = 0",
+            "CREATE INDEX IF NOT EXISTS idx_students_date_of_birth ON students(date_of_birth, id) WHERE is_deleted = 0"),
+        // One multi-row statement instead of a round trip per course
+        new Migration(2, "Seed courses", false, seedCoursesSql()),
+        // Tell every running node to reload its course catalog whenever the table changes
+        new Migration(3, "Notify on course changes", false,
+            "CREATE OR REPLACE FUNCTION notify_courses_changed() RETURNS trigger AS $$ " +
+            "BEGIN PERFORM pg_notify('courses_changed', ''); RETURN NULL; END; $$ LANGUAGE plpgsql",
+            "DROP TRIGGER IF EXISTS courses_changed ON courses",
+            "CREATE TRIGGER courses_changed AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON courses " +
+            "FOR EACH STATEMENT EXECUTE FUNCTION notify_courses_changed()"),
+        // Needs the pg_trgm extension, which not every server has installed
+        new Migration(4, "Trigram index for name/email search", true,
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "CREATE INDEX IF NOT EXISTS idx_students_name_email_trgm ON students " +
+            "USING gin (name gin_trgm_ops, email gin_trgm_ops) WHERE is_deleted = 0"),
+        // Live rows get their own index for the unfiltered list, and tombstones get a timestamp and an archive
+        // so the background purge can move them out of the table. The is_deleted index never paid for itself:
+        // nearly every row matched is_deleted = 0.
+        new Migration(5, "Live-row id index, deletion timestamps and students_archive", false,
+            "CREATE INDEX IF NOT EXISTS idx_students_live_id ON students(id) WHERE is_deleted = 0",
+            "DROP INDEX IF EXISTS idx_students_is_deleted",
+            "ALTER TABLE students ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMP",
+            // Existing tombstones have no deletion time; their retention period starts now
+            "UPDATE students SET deleted_at = CURRENT_TIMESTAMP WHERE is_deleted = 1 AND deleted_at IS NULL",
+            "CREATE INDEX IF NOT EXISTS idx_students_deleted_at ON students(deleted_at) WHERE is_deleted = 1",
+            "CREATE TABLE IF NOT EXISTS students_archive (" +
+            "id INTEGER PRIMARY KEY, " +
+            "roll_number VARCHAR(20) NOT NULL, " +
+            "name VARCHAR(50) NOT NULL, " +
+            "email VARCHAR(100) NOT NULL, " +
+            "course_id INTEGER, " +
+            "date_of_birth DATE NOT NULL, " +
+            "phone_number VARCHAR(15) NOT NULL, " +
+            "created_at TIMESTAMP, " +
+            "deleted_at TIMESTAMP, " +
+            "archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)"),
+    };
+    
+    private static String seedCoursesSql() {
+        StringJoiner values = new StringJoiner(", ", "INSERT INTO courses (course_name) VALUES ", " ON CONFLICT (course_name) DO NOTHING");
+        for (String course : SEED_COURSES) values.add("('" + course.replace("'", "''") + "')");
+        return values.toString();
+    }
+    
+    // Applies pending migrations, each in its own transaction. Nodes starting together queue on an advisory lock,
+    // and a node that finds nothing pending does one small query, however large the tables are.
+    private static void initializeDatabase() {
+        try (Connection conn = POOL.getConnection()) {
+            Statement statement = conn.createStatement();
+            // Session-level, so it is released if this node dies mid-migration
+            statement.execute("SELECT pg_advisory_lock(" + MIGRATION_LOCK + ")");
+            try {
+                statement.execute(
+                    "CREATE TABLE IF NOT EXISTS schema_migrations (" +
+                    "version INTEGER PRIMARY KEY, " +
+                    "description VARCHAR(200) NOT NULL, " +
+                    "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+                Set<Integer> applied = new HashSet<>();
+                ResultSet rs = statement.executeQuery("SELECT version FROM schema_migrations");
+                while (rs.next()) applied.add(rs.getInt("version"));
+                
+                int ran = 0;
+                for (Migration migration : MIGRATIONS) {
+                    if (!applied.contains(migration.version) && apply(conn, migration)) ran++;
+                }
+                System.out.println("✅ Database schema up to date (" + ran + " of " + MIGRATIONS.length + " migrations applied now)");
+            } finally {
+                statement.execute("SELECT pg_advisory_unlock(" + MIGRATION_LOCK + ")");
+            }
+        } catch (SQLException e) {
+            System.err.println("❌ Database initialization failed: " + e.getMessage());
+        }
+    }
+    
+    private static boolean apply(Connection conn, Migration migration) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            Statement statement = conn.createStatement();
+            for (String sql : migration.statements) statement.execute(sql);
+            PreparedStatement record = conn.prepareStatement("INSERT INTO schema_migrations (version, description) VALUES (?, ?)");
+            record.setInt(1, migration.version);
+            record.setString(2, migration.description);
+            record.executeUpdate();
+            conn.commit();
+            System.out.println("✅ Applied migration " + migration.version + ": " + migration.description);
+            return true;
+        } catch (SQLException e) {
+            conn.rollback();
+            if (!migration.optional) throw e;
+            System.err.println("⚠️ Optional migration " + migration.version + " (" + migration.description + ") skipped, will retry on next start: " + e.getMessage());
+            return false;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+    
+    // Background compaction: moves students soft-deleted more than purge.retentionDays ago into students_archive,
+    // purge.batchSize rows per transaction so no run holds locks for long. SKIP LOCKED lets several nodes run it at once.
+    static final class TombstonePurge {
+        private static final String MOVE_BATCH =
+            "WITH batch AS (" +
+            " SELECT id FROM students WHERE is_deleted = 1 AND deleted_at < CURRENT_TIMESTAMP - make_interval(days => ?)" +
+            " ORDER BY deleted_at LIMIT ? FOR UPDATE SKIP LOCKED" +
+            "), moved AS (" +
+            " DELETE FROM students s USING batch WHERE s.id = batch.id" +
+            " RETURNING s.id, s.roll_number, s.name, s.email, s.course_id, s.date_of_birth, s.phone_number, s.created_at, s.deleted_at" +
+            ") INSERT INTO students_archive (id, roll_number, name, email, course_id, date_of_birth, phone_number, created_at, deleted_at) " +
+            "SELECT * FROM moved";
+        private static final LongAdder ROWS = new LongAdder(), NANOS = new LongAdder(), RUNS = new LongAdder(), FAILURES = new LongAdder();
+        private static volatile long lastRunMillis;
+        
+        static void schedule() {
+            if (!Boolean.parseBoolean(System.getProperty("purge.enabled", "true"))) return;
+            long intervalSeconds = Long.getLong("purge.intervalSeconds", 3600);
+            SCHEDULER.scheduleWithFixedDelay(TombstonePurge::run, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+        
+        static void run() {
+            int retentionDays = Integer.getInteger("purge.retentionDays", 30);
+            int batchSize = Integer.getInteger("purge.batchSize", 500);
+            long pauseMillis = Long.getLong("purge.batchPauseMillis", 100);
+            long start = System.nanoTime();
+            long purged = 0;
+            try {
+                int moved;
+                do {
+                    try (Connection conn = POOL.getConnection()) {
+                        PreparedStatement stmt = conn.prepareStatement(MOVE_BATCH);
+                        stmt.setInt(1, retentionDays);
+                        stmt.setInt(2, batchSize);
+                        moved = stmt.executeUpdate();
+                    }
+                    purged += moved;
+                    ROWS.add(moved);
+                    // Leave room for request traffic between batches
+                    if (moved == batchSize) Thread.sleep(pauseMillis);
+                } while (moved == batchSize);
+                if (purged > 0) System.out.println("🧹 Archived " + purged + " students deleted more than " + retentionDays + " days ago");
+            } catch (SQLException e) {
+                FAILURES.increment();
+                System.err.println("⚠️ Tombstone purge failed after " + purged + " rows: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                NANOS.add(System.nanoTime() - start);
+                RUNS.increment();
+                lastRunMillis = System.currentTimeMillis();
+            }
+        }
+        
+        static void writePrometheus(StringBuilder out) {
+            out.append("# HELP studentapp_purge_rows_total Soft-deleted students moved to students_archive.\n");
+            out.append("# TYPE studentapp_purge_rows_total counter\n");
+            out.append("studentapp_purge_rows_total ").append(ROWS.sum()).append('\n');
+            out.append("# HELP studentapp_purge_seconds_total Time spent in purge runs, including pauses between batches.\n");
+            out.append("# TYPE studentapp_purge_seconds_total counter\n");
+            out.append("studentapp_purge_seconds_total ").append(NANOS.sum() / 1e9).append('\n');
+            out.append("# HELP studentapp_purge_runs_total Purge runs, and how many of them failed.\n");
+            out.append("# TYPE studentapp_purge_runs_total counter\n");
+            out.append("studentapp_purge_runs_total{result=\"ok\"} ").append(RUNS.sum() - FAILURES.sum()).append('\n');
+            out.append("studentapp_purge_runs_total{result=\"failed\"} ").append(FAILURES.sum()).append('\n');
+            out.append("# HELP studentapp_purge_last_run_timestamp_seconds When the last purge run finished.\n");
+            out.append("# TYPE studentapp_purge_last_run_timestamp_seconds gauge\n");
+            out.append("studentapp_purge_last_run_timestamp_seconds ").append(lastRunMillis / 1000).append('\n');
         }
     }
     
-    public static void main(String[] args) throws Exception {
-        Class.forName("org.postgresql.Driver");
+    // Serves the UI from memory. Each asset is read once at startup and kept both raw and gzip-compressed
+    // (plus a pre-built .br file when one ships next to it), with ETags for cheap revalidation.
+    static class StaticHandler implements HttpHandler {
+        private static final String[] ASSETS = {"/index.html", "/style.css", "/script.js"};
         
-        // Initialize database
-        initializeDatabase();
+        private static class Asset {
+            final String contentType, etag;
+            final byte[] raw, gzip, brotli;
+            
+            Asset(String contentType, byte[] raw, byte[] brotli) throws IOException {
+                this.contentType = contentType; this.raw = raw; this.brotli = brotli;
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (java.util.zip.GZIPOutputStream gz = new java.util.zip.GZIPOutputStream(compressed)) {
+                    gz.write(raw);
+                }
+                // Tiny files can grow when compressed; those are only ever sent raw
+                this.gzip = compressed.size() < raw.length ? compressed.toByteArray() : null;
+                java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+                crc.update(raw);
+                this.etag = Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(raw.length);
+            }
+        }
         
-        HttpServer server = HttpServer.create(new InetSocketAddress(7000), 0);
-        server.createContext("/", new StaticHandler());
-        server.createContext("/api/students", new StudentHandler());
-        server.createContext("/api/courses", new CourseHandler());
-        server.setExecutor(null);
-        server.start();
+        private final Map<String, Asset> assets = new HashMap<>();
+        private final String cacheControl;
         
-        System.out.println("🚀 Student Management System running at:");
-        System.out.println("📱 http://localhost:7000");
-        System.out.println("✅ Connected to PostgreSQL database: studentdb");
-    }
-    
-    private static void initializeDatabase() {
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
-            // Drop existing tables to reset schema
-            conn.createStatement().execute("DROP TABLE IF EXISTS students CASCADE");
-            conn.createStatement().execute("DROP TABLE IF EXISTS courses CASCADE");
-            
-            // Create courses table
-            conn.createStatement().execute(
-                "CREATE TABLE IF NOT EXISTS courses (" +
-                "id SERIAL PRIMARY KEY, " +
-                "course_name VARCHAR(100) NOT NULL UNIQUE)");
-            
-            // Insert courses
-            String[] courses = {"Computer Science and Engineering (CSE)", "Information Technology (IT)", 
-                               "Artificial Intelligence (AI)", "Data Science (DS)", "Machine Learning (ML)", 
-                               "Internet of Things (IOT)", "Civil Engineering (CE)", 
-                               "Electronics and Communication Engineering (ECE)", 
-                               "Electrical and Electronics Engineering (EEE)", "Mechanical Engineering (ME)", 
-                               "Cyber Security", "Block Chain Technology"};
-            
-            PreparedStatement stmt = conn.prepareStatement(
-                "INSERT INTO courses (course_name) VALUES (?) ON CONFLICT (course_name) DO NOTHING");
-            for (String course : courses) {
-                stmt.setString(1, course);
-                stmt.executeUpdate();
-            }
-            
-            // Create students table
-            conn.createStatement().execute(
-                "CREATE TABLE IF NOT EXISTS students (" +
-                "id SERIAL PRIMARY KEY, " +
-                "roll_number VARCHAR(20) UNIQUE NOT NULL, " +
-                "name VARCHAR(50) NOT NULL, " +
-                "email VARCHAR(100) UNIQUE NOT NULL, " +
-                "course_id INTEGER REFERENCES courses(id), " +
-                "date_of_birth DATE NOT NULL, " +
-                "phone_number VARCHAR(15) NOT NULL, " +
-                "is_deleted INTEGER DEFAULT 0 CHECK (is_deleted IN (0, 1)), " +
-                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
-            
-            // Create index
-            conn.createStatement().execute(
-                "CREATE INDEX IF NOT EXISTS idx_students_is_deleted ON students(is_deleted)");
-            
-            System.out.println("✅ Database initialized successfully");
-        } catch (SQLException e) {
-            System.err.println("❌ Database initialization failed: " + e.getMessage());
+        StaticHandler() throws IOException {
+            long maxAge = Long.getLong("static.maxAgeSeconds", 0);
+            // Without fingerprinted file names, "no-cache" (revalidate every time, usually a 304) is the safe default
+            cacheControl = maxAge > 0 ? "public, max-age=" + maxAge : "no-cache";
+            for (String path : ASSETS) {
+                byte[] raw = readAsset(path);
+                if (raw == null) {
+                    System.err.println("⚠️ Static asset not found: " + path);
+                    continue;
+                }
+                String contentType = path.endsWith(".html") ? "text/html; charset=utf-8" : 
+                                   path.endsWith(".css") ? "text/css; charset=utf-8" : 
+                                   path.endsWith(".js") ? "application/javascript; charset=utf-8" : "text/plain; charset=utf-8";
+                assets.put(path, new Asset(contentType, raw, readAsset(path + ".br")));
+            }
         }
-    }
-    
-    static class StaticHandler implements HttpHandler {
+        
+        // Classpath first (packaged jar), then the source tree for when the app is run from the project directory
+        private static byte[] readAsset(String path) throws IOException {
+            try (InputStream in = StaticHandler.class.getResourceAsStream("/static" + path)) {
+                if (in != null) return in.readAllBytes();
+            }
+            File file = new File("src/main/resources/static" + path);
+            return file.isFile() ? java.nio.file.Files.readAllBytes(file.toPath()) : null;
+        }
+        
         public void handle(HttpExchange exchange) throws IOException {
             String path = exchange.getRequestURI().getPath();
             if (path.equals("/")) path = "/index.html";
             
-            File file = new File("src/main/resources/static" + path);
-            if (file.exists()) {
-                String contentType = path.endsWith(".html") ? "text/html" : 
-                                   path.endsWith(".css") ? "text/css" : 
-                                   path.endsWith(".js") ? "application/javascript" : "text/plain";
-                exchange.getResponseHeaders().set("Content-Type", contentType);
-                exchange.sendResponseHeaders(200, file.length());
-                
-                try (FileInputStream fis = new FileInputStream(file);
-                     OutputStream os = exchange.getResponseBody()) {
-                    byte[] buffer = new byte[1024];
-                    int bytesRead;
-                    while ((bytesRead = fis.read(buffer)) != -1) {
-                        os.write(buffer, 0, bytesRead);
-                    }
+            Asset asset = assets.get(path);
+            if (asset == null) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            byte[] body = asset.raw;
+            String encoding = null;
+            if (asset.brotli != null && accepts(acceptEncoding, "br")) {
+                body = asset.brotli;
+                encoding = "br";
+            } else if (asset.gzip != null && accepts(acceptEncoding, "gzip")) {
+                body = asset.gzip;
+                encoding = "gzip";
+            }
+            // Each encoding is a different representation, so it gets its own entity tag
+            String etag = "\"" + asset.etag + (encoding == null ? "" : "-" + encoding) + "\"";
+            
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("ETag", etag);
+            headers.set("Cache-Control", cacheControl);
+            headers.set("Vary", "Accept-Encoding");
+            if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), asset.etag)) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            
+            headers.set("Content-Type", asset.contentType);
+            if (encoding != null) headers.set("Content-Encoding", encoding);
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        }
+        
+        // True if the Accept-Encoding header lists the coding without disabling it via q=0
+        static boolean accepts(String acceptEncoding, String coding) {
+            if (acceptEncoding == null) return false;
+            for (String part : acceptEncoding.split(",")) {
+                String[] params = part.trim().split(";");
+                if (!params[0].trim().equalsIgnoreCase(coding)) continue;
+                for (int i = 1; i < params.length; i++) {
+                    String param = params[i].trim();
+                    if (param.equals("q=0") || param.matches("q=0\\.0*")) return false;
                 }
-            } else {
-                exchange.sendResponseHeaders(404, 0);
-                exchange.getResponseBody().close();
+                return true;
+            }
+            return false;
+        }
+        
+        // A client revalidating any encoding of the asset gets a 304 as long as the content is unchanged
+        private static boolean matches(String ifNoneMatch, String assetTag) {
+            if (ifNoneMatch == null) return false;
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*")) return true;
+                if (tag.startsWith("W/")) tag = tag.substring(2);
+                if (tag.startsWith("\"" + assetTag + "\"") || tag.startsWith("\"" + assetTag + "-")) return true;
             }
+            return false;
         }
     }
     
     static class CourseHandler implements HttpHandler {
         public void handle(HttpExchange exchange) throws IOException {
             exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
-            exchange.getResponseHeaders().set("Access-Control-Allow-Methods", "GET");
+            exchange.getResponseHeaders().set("Access-Control-Allow-Methods", "GET, POST");
             exchange.getResponseHeaders().set("Access-Control-Allow-Headers", "Content-Type");
             
-            if (exchange.getRequestMethod().equals("GET")) {
-                try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
-                    ResultSet rs = conn.createStatement().executeQuery("SELECT * FROM courses ORDER BY course_name");
-                    StringBuilder json = new StringBuilder("[");
-                    boolean first = true;
-                    while (rs.next()) {
-                        if (!first) json.append(",");
-                        json.append(new Course(rs.getInt("id"), rs.getString("course_name")).toJson());
-                        first = false;
+            String path = exchange.getRequestURI().getPath();
+            try {
+                if (exchange.getRequestMethod().equals("POST") && path.equals("/api/courses/refresh")) {
+                    // On-demand reload, for changes made where the notification trigger is not installed
+                    refreshCourses();
+                    sendResponse(exchange, 200, "{\"courses\":" + COURSES.courses.size() + "}");
+                } else if (exchange.getRequestMethod().equals("GET") && path.equals("/api/courses/stats")) {
+                    // Answered from memory; no database work
+                    if (!COURSE_STATS.isReady()) {
+                        exchange.getResponseHeaders().set("Retry-After", "5");
+                        sendResponse(exchange, 503, "{\"error\":\"Course statistics are loading\"}");
+                        return;
                     }
-                    json.append("]");
-                    sendResponse(exchange, 200, json.toString());
-                } catch (SQLException e) {
-                    sendResponse(exchange, 500, "{\"error\":\"Database error\"}");
+                    sendResponse(exchange, 200, COURSE_STATS.toJson(COURSES));
+                } else if (exchange.getRequestMethod().equals("GET")) {
+                    if (COURSES.courses.isEmpty()) refreshCourses();
+                    sendResponse(exchange, 200, COURSES.json);
                 }
+            } catch (SQLException e) {
+                System.err.println("❌ " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + " failed: " + e.getMessage());
+                sendResponse(exchange, 500, "{\"error\":\"Database error\"}");
             }
         }
         
         private void sendResponse(HttpExchange exchange, int code, String response) throws IOException {
+            sendResponse(exchange, code, response.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        private void sendResponse(HttpExchange exchange, int code, byte[] bytes) throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(code, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        }
+    }
+    
+    static class StatsHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            String response = "{\"pool\":" + POOL.statsJson() + ",\"uniqueKeys\":{\"students\":" + UNIQUE_KEYS.size() + "}" +
+                ",\"studentCache\":" + STUDENT_CACHE.statsJson() + "}";
             exchange.getResponseHeaders().set("Content-Type", "application/json");
-            exchange.sendResponseHeaders(code, response.length());
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            exchange.sendResponseHeaders(200, response.length());
             try (OutputStream os = exchange.getResponseBody()) {
                 os.write(response.getBytes());
             }
         }
     }
     
+    // GET /metrics in the Prometheus text format
+    static class MetricsHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            byte[] response = Metrics.render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response);
+            }
+        }
+    }
+    
+    // Helper method to decode a request's query string into a map (last value wins)
+    static Map<String, String> parseQuery(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String query = uri.getRawQuery();
+        if (query == null || query.isEmpty()) return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+    
+    // Helper method to escape a value for embedding in a JSON string literal
+    static String jsonEscape(String value) {
+        if (value == null) return "";
+        StringBuilder escaped = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': escaped.append("\\\""); break;
+                case '\\': escaped.append("\\\\"); break;
+                case '\n': escaped.append("\\n"); break;
+                case '\r': escaped.append("\\r"); break;
+                case '\t': escaped.append("\\t"); break;
+                default:
+                    if (c < 0x20) escaped.append(String.format("\\u%04x", (int) c));
+                    else escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+    
+    // Helper method to escape LIKE wildcards in user input
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+    
     // Helper method to format date from yyyy-mm-dd to dd-mm-yyyy
     private static String formatDateForDisplay(String dbDate) {
         if (dbDate == null) return "";
@@ -177,15 +3044,61 @@ public class StudentWebApp {
     }
     
     static class StudentHandler implements HttpHandler {
+        private static final String SELECT_STUDENTS =
+            "SELECT s.id, s.roll_number, s.name, s.email, c.course_name, s.date_of_birth, s.phone_number, s.course_id " +
+            "FROM students s JOIN courses c ON s.course_id = c.id";
+        private static final int MAX_PAGE_SIZE = 1000;
+        private static final int MAX_BODY_BYTES = Integer.getInteger("http.maxBodyBytes", 64 * 1024);
+        private static final int STREAM_CHUNK_BYTES = 8192;
+        private static final int IMPORT_COPY_BUFFER = 64 * 1024;
+        // Deletes staged rows that collide with a live student or with an earlier line of the same import,
+        // returning one reason per rejected line
+        private static final String IMPORT_REJECT_DUPLICATES =
+            "WITH dup AS (" +
+            " SELECT line, 'rollNumber' AS field FROM (SELECT line, row_number() OVER (PARTITION BY roll_number ORDER BY line) AS n FROM import_staging) d WHERE n > 1" +
+            " UNION ALL SELECT i.line, 'rollNumber' FROM import_staging i JOIN students s ON s.roll_number = i.roll_number AND s.is_deleted = 0" +
+            " UNION ALL SELECT line, 'email' FROM (SELECT line, row_number() OVER (PARTITION BY email ORDER BY line) AS n FROM import_staging) d WHERE n > 1" +
+            " UNION ALL SELECT i.line, 'email' FROM import_staging i JOIN students s ON s.email = i.email AND s.is_deleted = 0" +
+            " UNION ALL SELECT line, 'phoneNumber' FROM (SELECT line, row_number() OVER (PARTITION BY phone_number ORDER BY line) AS n FROM import_staging) d WHERE n > 1" +
+            " UNION ALL SELECT i.line, 'phoneNumber' FROM import_staging i JOIN students s ON s.phone_number = i.phone_number AND s.is_deleted = 0" +
+            "), removed AS (DELETE FROM import_staging i WHERE i.line IN (SELECT line FROM dup)) " +
+            "SELECT line, min(field) AS field FROM dup GROUP BY line ORDER BY line";
+        private static final Map<String, String> IMPORT_DUPLICATE_MESSAGES = Map.of(
+            "email", "Email already exists. Please use a different email address.",
+            "phoneNumber", "Phone number already exists. Please use a different phone number.",
+            "rollNumber", "Roll number already exists. Please use a different roll number.");
+        // Writes return the full row and take the course name from the catalog, so the response needs no follow-up query
+        private static final String RETURNING_STUDENT =
+            " RETURNING id, roll_number, name, email, date_of_birth, phone_number, course_id";
+        private static final String INSERT_STUDENT =
+            "INSERT INTO students (roll_number, name, email, course_id, date_of_birth, phone_number) VALUES (?, ?, ?, ?, ?, ?)" +
+            RETURNING_STUDENT;
+        // Also returns the row's previous course and birth date, for the course statistics. FOR UPDATE makes the
+        // CTE read the version this statement replaces even if a concurrent edit committed first.
+        private static final String UPDATE_STUDENT =
+            "WITH previous AS (SELECT id, course_id, date_of_birth FROM students WHERE id = ? AND is_deleted = 0 FOR UPDATE) " +
+            "UPDATE students s SET roll_number = ?, name = ?, email = ?, course_id = ?, date_of_birth = ?, phone_number = ? " +
+            "FROM previous WHERE s.id = previous.id " +
+            "RETURNING s.id, s.roll_number, s.name, s.email, s.date_of_birth, s.phone_number, s.course_id, " +
+            "previous.course_id AS previous_course_id, previous.date_of_birth AS previous_date_of_birth";
+        // Peers are only listening when notifications are enabled
+        private static final boolean NOTIFY_CHANGES = Boolean.parseBoolean(System.getProperty("db.listen", "true"));
+        private static final long EVENTS_HEARTBEAT_SECONDS = Long.getLong("events.heartbeatSeconds", 15);
+        private static final byte[] EVENTS_PREAMBLE = "retry: 3000\n\n".getBytes(StandardCharsets.UTF_8);
+        private static final byte[] EVENTS_HEARTBEAT = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+        
         public void handle(HttpExchange exchange) throws IOException {
             exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
             exchange.getResponseHeaders().set("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-            exchange.getResponseHeaders().set("Access-Control-Allow-Headers", "Content-Type");
+            exchange.getResponseHeaders().set("Access-Control-Allow-Headers", "Content-Type, " + ReplicaRouter.READ_AFTER_HEADER);
+            exchange.getResponseHeaders().set("Access-Control-Expose-Headers", "X-Next-After, ETag, " + ReplicaRouter.READ_AFTER_HEADER);
             
             String method = exchange.getRequestMethod();
             String path = exchange.getRequestURI().getPath();
             
             if (method.equals("OPTIONS")) {
+                // Reads carrying X-Read-After need a preflight; let the browser reuse it
+                exchange.getResponseHeaders().set("Access-Control-Max-Age", "600");
                 exchange.sendResponseHeaders(200, 0);
                 exchange.getResponseBody().close();
                 return;
@@ -195,10 +3108,15 @@ public class StudentWebApp {
                 switch (method) {
                     case "GET":
                         if (path.equals("/api/students")) handleGetAll(exchange);
+                        else if (path.equals("/api/students/availability")) handleAvailability(exchange);
+                        else if (path.equals("/api/students/export")) handleExport(exchange);
+                        else if (path.equals("/api/students/events")) handleEvents(exchange);
+                        else if (path.equals("/api/students/search")) handleSearch(exchange);
                         else handleGetById(exchange, path);
                         break;
                     case "POST":
-                        handlePost(exchange);
+                        if (path.equals("/api/students/import")) handleImport(exchange);
+                        else handlePost(exchange);
                         break;
                     case "PUT":
                         handlePut(exchange, path);
@@ -207,48 +3125,289 @@ public class StudentWebApp {
                         handleDelete(exchange, path);
                         break;
                 }
+            } catch (BadRequestException e) {
+                sendResponse(exchange, e.status, "{\"error\":\"" + jsonEscape(e.getMessage()) + "\"}");
+            } catch (ResponseAbortedException e) {
+                throw e;
             } catch (Exception e) {
+                System.err.println("❌ " + method + " " + path + " failed: " + e);
                 sendResponse(exchange, 500, "{\"error\":\"Server error\"}");
             }
         }
         
+        // GET /api/students[?limit=&after=&courseId=&rollNumber=&q=&dobFrom=&dobTo=]
+        // With a limit the response is one keyset page and X-Next-After carries the cursor for the next one;
+        // without it every matching row is streamed.
         private void handleGetAll(HttpExchange exchange) throws IOException {
-            try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
-                String query = "SELECT s.id, s.roll_number, s.name, s.email, c.course_name, s.date_of_birth, s.phone_number, s.course_id " +
-                              "FROM students s JOIN courses c ON s.course_id = c.id WHERE s.is_deleted = 0 ORDER BY s.id";
-                ResultSet rs = conn.createStatement().executeQuery(query);
-                StringBuilder json = new StringBuilder("[");
-                boolean first = true;
-                while (rs.next()) {
-                    if (!first) json.append(",");
-                    json.append(new Student(rs.getInt("id"), rs.getString("roll_number"), rs.getString("name"), 
-                        rs.getString("email"), rs.getString("course_name"), formatDateForDisplay(rs.getString("date_of_birth")), 
-                        rs.getString("phone_number"), rs.getInt("course_id")).toJson());
-                    first = false;
-                }
-                json.append("]");
-                sendResponse(exchange, 200, json.toString());
+            Map<String, String> query = parseQuery(exchange.getRequestURI());
+            StringBuilder sql = new StringBuilder(SELECT_STUDENTS + " WHERE s.is_deleted = 0");
+            List<Object> args = new ArrayList<>();
+            Integer limit = null;
+            try {
+                if (query.containsKey("limit")) {
+                    limit = Math.max(1, Math.min(Integer.parseInt(query.get("limit")), MAX_PAGE_SIZE));
+                }
+                if (query.containsKey("after")) {
+                    sql.append(" AND s.id > ?");
+                    args.add(Integer.parseInt(query.get("after")));
+                }
+                if (query.containsKey("courseId")) {
+                    sql.append(" AND s.course_id = ?");
+                    args.add(Integer.parseInt(query.get("courseId")));
+                }
+                if (query.containsKey("rollNumber")) {
+                    sql.append(" AND s.roll_number LIKE ?");
+                    args.add(escapeLike(query.get("rollNumber")) + "%");
+                }
+                if (query.containsKey("q") && !query.get("q").isBlank()) {
+                    String term = escapeLike(query.get("q").trim());
+                    sql.append(" AND (s.name ILIKE ? OR s.email ILIKE ? OR s.roll_number LIKE ?)");
+                    args.add("%" + term + "%");
+                    args.add("%" + term + "%");
+                    args.add(term + "%");
+                }
+                if (query.containsKey("dobFrom")) {
+                    sql.append(" AND s.date_of_birth >= ?");
+                    args.add(java.sql.Date.valueOf(query.get("dobFrom")));
+                }
+                if (query.containsKey("dobTo")) {
+                    sql.append(" AND s.date_of_birth <= ?");
+                    args.add(java.sql.Date.valueOf(query.get("dobTo")));
+                }
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, 400, "{\"error\":\"Invalid query parameter\"}");
+                return;
+            }
+            sql.append(" ORDER BY s.id");
+            if (limit != null) {
+                // One extra row tells us whether another page exists
+                sql.append(" LIMIT ?");
+                args.add(limit + 1);
+            }
+            
+            // Read the version before querying: rows committed after this point can only make the response newer
+            long version = STUDENTS_VERSION.get();
+            String cacheKey = String.valueOf(exchange.getRequestURI().getRawQuery());
+            String etag = "W/\"" + BOOT_ID + "-" + version + "-" + Integer.toHexString(cacheKey.hashCode()) + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            ListCache.Entry cached = LIST_CACHE.get(version, cacheKey);
+            if (cached != null) {
+                if (cached.nextAfter != null) exchange.getResponseHeaders().set("X-Next-After", cached.nextAfter);
+                sendResponse(exchange, 200, cached.json);
+                return;
+            }
+            
+            try (ReplicaRouter.ReadConnection read = REPLICAS.read(exchange)) {
+                Connection conn = read.conn;
+                // A replica that may be behind this node's writes could return rows older than version says
+                if (!read.current) exchange.getResponseHeaders().remove("ETag");
+                // PgJDBC only honours the fetch size (and streams through a cursor) inside a transaction
+                conn.setAutoCommit(false);
+                PreparedStatement stmt = conn.prepareStatement(sql.toString());
+                for (int i = 0; i < args.size(); i++) stmt.setObject(i + 1, args.get(i));
+                stmt.setFetchSize(FETCH_SIZE);
+                ResultSet rs = stmt.executeQuery();
+                
+                if (limit != null) {
+                    List<Student> page = new ArrayList<>();
+                    while (page.size() <= limit && rs.next()) page.add(readStudent(rs));
+                    String nextAfter = null;
+                    if (page.size() > limit) {
+                        page.remove(page.size() - 1);
+                        nextAfter = String.valueOf(page.get(page.size() - 1).id);
+                        exchange.getResponseHeaders().set("X-Next-After", nextAfter);
+                    }
+                    JsonWriter json = JsonWriter.reused(256 * page.size() + 2).beginArray();
+                    for (Student student : page) student.writeJson(json);
+                    byte[] bytes = json.endArray().toByteArray();
+                    if (read.current) LIST_CACHE.put(version, cacheKey, new ListCache.Entry(bytes, nextAfter));
+                    sendResponse(exchange, 200, bytes);
+                    return;
+                }
+                
+                // Length 0 selects chunked transfer encoding, so rows go out as they are read. Full lists are not
+                // cached: keeping a copy would cost the very per-request allocation that streaming avoids.
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                // One writer for the whole response, drained to the socket whenever it holds a chunk's worth
+                try {
+                    JsonWriter json = new JsonWriter(STREAM_CHUNK_BYTES + 512).beginArray();
+                    while (rs.next()) {
+                        readStudent(rs).writeJson(json);
+                        if (json.size() >= STREAM_CHUNK_BYTES) json.flushTo(out);
+                    }
+                    json.endArray().flushTo(out);
+                } catch (SQLException e) {
+                    // Headers are already on the wire; the body is left open so the transfer is seen to fail
+                    System.err.println("❌ Student list stream aborted: " + e.getMessage());
+                    throw new ResponseAbortedException(e);
+                }
+                out.close();
             } catch (SQLException e) {
+                System.err.println("❌ " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + " failed: " + e.getMessage());
                 sendResponse(exchange, 500, "{\"error\":\"Database error\"}");
             }
         }
         
+        private static Student readStudent(ResultSet rs) throws SQLException {
+            return readStudent(rs, rs.getString("course_name"));
+        }
+        
+        private static Student readStudent(ResultSet rs, String courseName) throws SQLException {
+            return new Student(rs.getInt("id"), rs.getString("roll_number"), rs.getString("name"), 
+                rs.getString("email"), courseName, formatDateForDisplay(rs.getString("date_of_birth")), 
+                rs.getString("phone_number"), rs.getInt("course_id"));
+        }
+        
+        // The live row for id, or null if it does not exist or was deleted
+        static Student loadLive(int id) throws SQLException {
+            try (Connection conn = POOL.getConnection()) {
+                PreparedStatement stmt = conn.prepareStatement(SELECT_STUDENTS + " WHERE s.id = ? AND s.is_deleted = 0");
+                stmt.setInt(1, id);
+                ResultSet rs = stmt.executeQuery();
+                return rs.next() ? readStudent(rs) : null;
+            }
+        }
+        
+        // Local subscribers get the change straight away; other nodes hear about it through NOTIFY. The writes run
+        // in autocommit, so this is a separate statement after the write has committed: best effort, and lost if it
+        // fails or the node dies in between. Peers then catch up through their periodic reloads (unique keys,
+        // search index) and the student cache TTL, but their event streams never see the change and their list
+        // ETags stay on the old version until the next change they do hear about.
+        private static void publishChange(Connection conn, String event, int id, byte[] data) {
+            CHANGE_FEED.publish(event, data);
+            if (!NOTIFY_CHANGES) return;
+            try {
+                PreparedStatement notify = conn.prepareStatement("SELECT pg_notify('students_changed', ?)");
+                notify.setString(1, BOOT_ID + ":" + event + ":" + id);
+                notify.execute();
+            } catch (SQLException e) {
+                System.err.println("⚠️ Change notification for student " + id + " failed: " + e.getMessage());
+            }
+        }
+        
+        // GET /api/students/events - Server-Sent Events stream of upsert, delete and reset events.
+        // A reconnecting browser sends Last-Event-ID and receives what it missed.
+        private void handleEvents(HttpExchange exchange) throws IOException {
+            long lastEventId = -1;
+            try {
+                String header = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+                if (header != null) lastEventId = Long.parseLong(header.trim());
+            } catch (NumberFormatException e) {
+                // Not one of ours; treat as a new client
+            }
+            BlockingQueue<byte[]> queue = CHANGE_FEED.subscribe(lastEventId);
+            if (queue == null) {
+                exchange.getResponseHeaders().set("Retry-After", "30");
+                sendResponse(exchange, 503, "{\"error\":\"Too many event subscribers\"}");
+                return;
+            }
+            try {
+                exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+                exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                out.write(EVENTS_PREAMBLE);
+                out.flush();
+                while (true) {
+                    byte[] frame = queue.poll(EVENTS_HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                    if (frame == ChangeFeed.CLOSE) break;
+                    // A comment line on idle streams keeps proxies from timing them out and finds dead clients
+                    out.write(frame == null ? EVENTS_HEARTBEAT : frame);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // Client went away
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                CHANGE_FEED.unsubscribe(queue);
+                exchange.close();
+            }
+        }
+        
+        // GET /api/students/availability?rollNumber=&email=&phoneNumber=[&excludeId=]
+        // Answered from the in-memory key index; excludeId lets an edit keep its own values
+        private void handleAvailability(HttpExchange exchange) throws IOException {
+            Map<String, String> query = parseQuery(exchange.getRequestURI());
+            int excludeId;
+            try {
+                excludeId = query.containsKey("excludeId") ? Integer.parseInt(query.get("excludeId")) : 0;
+            } catch (NumberFormatException e) {
+                sendResponse(exchange, 400, "{\"error\":\"Invalid query parameter\"}");
+                return;
+            }
+            Map<String, String> conflicts = UNIQUE_KEYS.conflicts(query.get("rollNumber"), query.get("email"), query.get("phoneNumber"), excludeId);
+            JsonWriter json = JsonWriter.reused(256).beginObject()
+                .name("available").value(conflicts.isEmpty())
+                .name("conflicts").beginObject();
+            for (Map.Entry<String, String> conflict : conflicts.entrySet()) json.name(conflict.getKey()).value(conflict.getValue());
+            sendResponse(exchange, 200, json.endObject().endObject().toByteArray());
+        }
+        
+        // GET /api/students/search?q=[&offset=][&limit=]
+        // Ranked search over name, roll number, email and phone answered from the in-memory trigram index.
+        // "fuzzy" is true when no student matched every term and the closest near-matches are returned instead;
+        // "truncated" when the query examined search.maxCandidates candidates and stopped; the page is the best of those.
+        private void handleSearch(HttpExchange exchange) throws IOException {
+            Map<String, String> query = parseQuery(exchange.getRequestURI());
+            int offset, limit;
+            try {
+                offset = Math.max(0, Integer.parseInt(query.getOrDefault("offset", "0")));
+                limit = Math.max(1, Math.min(Integer.parseInt(query.getOrDefault("limit", "20")), SearchIndex.MAX_LIMIT));
+            } catch (NumberFormatException e) {
+                sendResponse(exchange, 400, "{\"error\":\"Invalid query parameter\"}");
+                return;
+            }
+            if (!SEARCH.isReady()) {
+                exchange.getResponseHeaders().set("Retry-After", "5");
+                sendResponse(exchange, 503, "{\"error\":\"Search index is loading\"}");
+                return;
+            }
+            SearchIndex.Result result = SEARCH.search(query.getOrDefault("q", ""), offset, limit);
+            if (result == null) {
+                sendResponse(exchange, 400, "{\"error\":\"Search needs a term of at least 2 characters\"}");
+                return;
+            }
+            JsonWriter json = JsonWriter.reused(256 + result.students.size() * 256).beginObject()
+                .name("total").value(result.total)
+                .name("truncated").value(result.truncated)
+                .name("fuzzy").value(result.fuzzy)
+                .name("students").beginArray();
+            for (Student student : result.students) student.writeJson(json);
+            sendResponse(exchange, 200, json.endArray().endObject().toByteArray());
+        }
+        
         private void handleGetById(HttpExchange exchange, String path) throws IOException {
             int id = Integer.parseInt(path.substring(path.lastIndexOf("/") + 1));
-            try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
-                String query = "SELECT s.id, s.roll_number, s.name, s.email, c.course_name, s.date_of_birth, s.phone_number, s.course_id " +
-                              "FROM students s JOIN courses c ON s.course_id = c.id WHERE s.id = ? AND s.is_deleted = 0";
-                PreparedStatement stmt = conn.prepareStatement(query);
+            byte[] cached = STUDENT_CACHE.get(id);
+            if (cached != null) {
+                sendResponse(exchange, 200, cached);
+                return;
+            }
+            
+            long token = STUDENT_CACHE.readToken(id);
+            try (ReplicaRouter.ReadConnection read = REPLICAS.read(exchange)) {
+                String query = SELECT_STUDENTS + " WHERE s.id = ? AND s.is_deleted = 0";
+                PreparedStatement stmt = read.conn.prepareStatement(query);
                 stmt.setInt(1, id);
                 ResultSet rs = stmt.executeQuery();
                 if (rs.next()) {
-                    sendResponse(exchange, 200, new Student(rs.getInt("id"), rs.getString("roll_number"), rs.getString("name"), 
-                        rs.getString("email"), rs.getString("course_name"), formatDateForDisplay(rs.getString("date_of_birth")), 
-                        rs.getString("phone_number"), rs.getInt("course_id")).toJson());
+                    byte[] json = readStudent(rs).toJsonBytes();
+                    if (read.current) STUDENT_CACHE.putIfUnchanged(id, json, token);
+                    sendResponse(exchange, 200, json);
                 } else {
                     sendResponse(exchange, 404, "{\"error\":\"Student not found\"}");
                 }
             } catch (SQLException e) {
+                System.err.println("❌ " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + " failed: " + e.getMessage());
                 sendResponse(exchange, 500, "{\"error\":\"Database error\"}");
             }
         }
@@ -259,42 +3418,9 @@ public class StudentWebApp {
                    courseIdStr = params.get("courseId"), dateOfBirth = params.get("dateOfBirth"), phoneNumber = params.get("phoneNumber");
             
             if (rollNumber != null && name != null && email != null && courseIdStr != null && dateOfBirth != null && phoneNumber != null) {
-                try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
-                    // Check for duplicate roll number
-                    PreparedStatement checkStmt = conn.prepareStatement(
-                        "SELECT COUNT(*) FROM students WHERE roll_number = ? AND is_deleted = 0");
-                    checkStmt.setString(1, rollNumber);
-                    ResultSet rs = checkStmt.executeQuery();
-                    
-                    if (rs.next() && rs.getInt(1) > 0) {
-                        sendResponse(exchange, 400, "{\"error\":\"Roll number already exists. Please use a different roll number.\"}");
-                        return;
-                    }
-                    
-                    // Check for duplicate email
-                    PreparedStatement emailCheckStmt = conn.prepareStatement(
-                        "SELECT COUNT(*) FROM students WHERE email = ? AND is_deleted = 0");
-                    emailCheckStmt.setString(1, email);
-                    ResultSet emailRs = emailCheckStmt.executeQuery();
-                    
-                    if (emailRs.next() && emailRs.getInt(1) > 0) {
-                        sendResponse(exchange, 400, "{\"error\":\"Email already exists. Please use a different email address.\"}");
-                        return;
-                    }
-                    
-                    // Check for duplicate phone number
-                    PreparedStatement phoneCheckStmt = conn.prepareStatement(
-                        "SELECT COUNT(*) FROM students WHERE phone_number = ? AND is_deleted = 0");
-                    phoneCheckStmt.setString(1, phoneNumber);
-                    ResultSet phoneRs = phoneCheckStmt.executeQuery();
-                    
-                    if (phoneRs.next() && phoneRs.getInt(1) > 0) {
-                        sendResponse(exchange, 400, "{\"error\":\"Phone number already exists. Please use a different phone number.\"}");
-                        return;
-                    }
-                    
-                    String insertQuery = "INSERT INTO students (roll_number, name, email, course_id, date_of_birth, phone_number) VALUES (?, ?, ?, ?, ?, ?) RETURNING *";
-                    PreparedStatement stmt = conn.prepareStatement(insertQuery);
+                try (Connection conn = POOL.getConnection()) {
+                    // Duplicates are rejected by the partial unique indexes, so the insert is the only round trip
+                    PreparedStatement stmt = conn.prepareStatement(INSERT_STUDENT);
                     stmt.setString(1, rollNumber);
                     stmt.setString(2, name);
                     stmt.setString(3, email);
@@ -302,20 +3428,20 @@ public class StudentWebApp {
                     stmt.setDate(5, java.sql.Date.valueOf(dateOfBirth));
                     stmt.setString(6, phoneNumber);
                     
-                    ResultSet result = stmt.executeQuery();
-                    if (result.next()) {
-                        // Get course name for response
-                        PreparedStatement courseStmt = conn.prepareStatement("SELECT course_name FROM courses WHERE id = ?");
-                        courseStmt.setInt(1, result.getInt("course_id"));
-                        ResultSet courseRs = courseStmt.executeQuery();
-                        String courseName = courseRs.next() ? courseRs.getString("course_name") : "";
-                        
-                        sendResponse(exchange, 201, new Student(result.getInt("id"), result.getString("roll_number"), 
-                            result.getString("name"), result.getString("email"), courseName, 
-                            formatDateForDisplay(result.getString("date_of_birth")), result.getString("phone_number"), result.getInt("course_id")).toJson());
+                    ResultSet result = COURSE_STATS.write(stmt,
+                        row -> COURSE_STATS.add(row.getInt("course_id"), CourseStats.birthYear(row, "date_of_birth"), 1));
+                    if (result != null) {
+                        Student student = readStudent(result, courseName(result.getInt("course_id")));
+                        UNIQUE_KEYS.put(student.id, student.rollNumber, student.email, student.phoneNumber);
+                        SEARCH.put(student);
+                        STUDENTS_VERSION.incrementAndGet();
+                        byte[] json = student.toJsonBytes();
+                        publishChange(conn, "upsert", student.id, json);
+                        REPLICAS.afterWrite(exchange, conn);
+                        sendResponse(exchange, 201, json);
                     }
                 } catch (SQLException e) {
-                    sendResponse(exchange, 400, "{\"error\":\"Database error: " + e.getMessage() + "\"}");
+                    sendResponse(exchange, 400, "{\"error\":\"" + writeErrorMessage(e) + "\"}");
                 }
             } else {
                 sendResponse(exchange, 400, "{\"error\":\"Missing required fields\"}");
@@ -329,116 +3455,401 @@ public class StudentWebApp {
                    courseIdStr = params.get("courseId"), dateOfBirth = params.get("dateOfBirth"), phoneNumber = params.get("phoneNumber");
             
             if (rollNumber != null && name != null && email != null && courseIdStr != null && dateOfBirth != null && phoneNumber != null) {
-                try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
-                    // Check for duplicate roll number (excluding current student)
-                    PreparedStatement checkStmt = conn.prepareStatement(
-                        "SELECT COUNT(*) FROM students WHERE roll_number = ? AND id != ? AND is_deleted = 0");
-                    checkStmt.setString(1, rollNumber);
-                    checkStmt.setInt(2, id);
-                    ResultSet rs = checkStmt.executeQuery();
-                    
-                    if (rs.next() && rs.getInt(1) > 0) {
-                        sendResponse(exchange, 400, "{\"error\":\"Roll number already exists. Please use a different roll number.\"}");
-                        return;
-                    }
-                    
-                    // Check for duplicate email (excluding current student)
-                    PreparedStatement emailCheckStmt = conn.prepareStatement(
-                        "SELECT COUNT(*) FROM students WHERE email = ? AND id != ? AND is_deleted = 0");
-                    emailCheckStmt.setString(1, email);
-                    emailCheckStmt.setInt(2, id);
-                    ResultSet emailRs = emailCheckStmt.executeQuery();
-                    
-                    if (emailRs.next() && emailRs.getInt(1) > 0) {
-                        sendResponse(exchange, 400, "{\"error\":\"Email already exists. Please use a different email address.\"}");
-                        return;
-                    }
-                    
-                    // Check for duplicate phone number (excluding current student)
-                    PreparedStatement phoneCheckStmt = conn.prepareStatement(
-                        "SELECT COUNT(*) FROM students WHERE phone_number = ? AND id != ? AND is_deleted = 0");
-                    phoneCheckStmt.setString(1, phoneNumber);
-                    phoneCheckStmt.setInt(2, id);
-                    ResultSet phoneRs = phoneCheckStmt.executeQuery();
-                    
-                    if (phoneRs.next() && phoneRs.getInt(1) > 0) {
-                        sendResponse(exchange, 400, "{\"error\":\"Phone number already exists. Please use a different phone number.\"}");
-                        return;
-                    }
-                    
-                    String updateQuery = "UPDATE students SET roll_number = ?, name = ?, email = ?, course_id = ?, date_of_birth = ?, phone_number = ? WHERE id = ? AND is_deleted = 0 RETURNING *";
-                    PreparedStatement stmt = conn.prepareStatement(updateQuery);
-                    stmt.setString(1, rollNumber);
-                    stmt.setString(2, name);
-                    stmt.setString(3, email);
-                    stmt.setInt(4, Integer.parseInt(courseIdStr));
-                    stmt.setDate(5, java.sql.Date.valueOf(dateOfBirth));
-                    stmt.setString(6, phoneNumber);
-                    stmt.setInt(7, id);
+                try (Connection conn = POOL.getConnection()) {
+                    PreparedStatement stmt = conn.prepareStatement(UPDATE_STUDENT);
+                    stmt.setInt(1, id);
+                    stmt.setString(2, rollNumber);
+                    stmt.setString(3, name);
+                    stmt.setString(4, email);
+                    stmt.setInt(5, Integer.parseInt(courseIdStr));
+                    stmt.setDate(6, java.sql.Date.valueOf(dateOfBirth));
+                    stmt.setString(7, phoneNumber);
                     
-                    ResultSet result = stmt.executeQuery();
-                    if (result.next()) {
-                        // Get course name for response
-                        PreparedStatement courseStmt = conn.prepareStatement("SELECT course_name FROM courses WHERE id = ?");
-                        courseStmt.setInt(1, result.getInt("course_id"));
-                        ResultSet courseRs = courseStmt.executeQuery();
-                        String courseName = courseRs.next() ? courseRs.getString("course_name") : "";
-                        
-                        sendResponse(exchange, 200, new Student(result.getInt("id"), result.getString("roll_number"), 
-                            result.getString("name"), result.getString("email"), courseName, 
-                            formatDateForDisplay(result.getString("date_of_birth")), result.getString("phone_number"), result.getInt("course_id")).toJson());
+                    ResultSet result = COURSE_STATS.write(stmt,
+                        row -> COURSE_STATS.move(row.getInt("previous_course_id"), CourseStats.birthYear(row, "previous_date_of_birth"),
+                                                 row.getInt("course_id"), CourseStats.birthYear(row, "date_of_birth")));
+                    if (result != null) {
+                        Student student = readStudent(result, courseName(result.getInt("course_id")));
+                        UNIQUE_KEYS.put(student.id, student.rollNumber, student.email, student.phoneNumber);
+                        SEARCH.put(student);
+                        byte[] json = student.toJsonBytes();
+                        STUDENT_CACHE.put(student.id, json);
+                        STUDENTS_VERSION.incrementAndGet();
+                        publishChange(conn, "upsert", student.id, json);
+                        REPLICAS.afterWrite(exchange, conn);
+                        sendResponse(exchange, 200, json);
                     } else {
                         sendResponse(exchange, 404, "{\"error\":\"Student not found\"}");
                     }
                 } catch (SQLException e) {
-                    sendResponse(exchange, 400, "{\"error\":\"Database error: " + e.getMessage() + "\"}");
+                    sendResponse(exchange, 400, "{\"error\":\"" + writeErrorMessage(e) + "\"}");
                 }
             } else {
                 sendResponse(exchange, 400, "{\"error\":\"Missing required fields\"}");
             }
         }
         
+        // Maps a failed insert/update back to the message the UI shows for that field
+        private String writeErrorMessage(SQLException e) {
+            String message = String.valueOf(e.getMessage());
+            if ("23505".equals(e.getSQLState())) {
+                if (message.contains("uq_students_roll_number")) return "Roll number already exists. Please use a different roll number.";
+                if (message.contains("uq_students_email")) return "Email already exists. Please use a different email address.";
+                if (message.contains("uq_students_phone_number")) return "Phone number already exists. Please use a different phone number.";
+            }
+            if ("23503".equals(e.getSQLState())) return "Invalid course";
+            return "Database error: " + jsonEscape(message);
+        }
+        
         private void handleDelete(HttpExchange exchange, String path) throws IOException {
             int id = Integer.parseInt(path.substring(path.lastIndexOf("/") + 1));
-            try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+            try (Connection conn = POOL.getConnection()) {
                 // Soft delete - set is_deleted = 1
-                PreparedStatement stmt = conn.prepareStatement("UPDATE students SET is_deleted = 1 WHERE id = ? AND is_deleted = 0");
+                PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE students SET is_deleted = 1, deleted_at = CURRENT_TIMESTAMP WHERE id = ? AND is_deleted = 0 " +
+                    "RETURNING course_id, date_of_birth");
                 stmt.setInt(1, id);
-                int rowsAffected = stmt.executeUpdate();
+                ResultSet deleted = COURSE_STATS.write(stmt,
+                    row -> COURSE_STATS.add(row.getInt("course_id"), CourseStats.birthYear(row, "date_of_birth"), -1));
                 
-                if (rowsAffected > 0) {
+                if (deleted != null) {
+                    UNIQUE_KEYS.remove(id);
+                    SEARCH.remove(id);
+                    STUDENT_CACHE.invalidate(id);
+                    STUDENTS_VERSION.incrementAndGet();
+                    publishChange(conn, "delete", id, ("{\"id\":" + id + "}").getBytes(StandardCharsets.UTF_8));
+                    REPLICAS.afterWrite(exchange, conn);
                     sendResponse(exchange, 200, "{\"message\":\"Student deleted successfully\"}");
                 } else {
                     sendResponse(exchange, 404, "{\"error\":\"Student not found\"}");
                 }
             } catch (SQLException e) {
+                System.err.println("❌ " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + " failed: " + e.getMessage());
+                sendResponse(exchange, 500, "{\"error\":\"Database error\"}");
+            }
+        }
+        
+        // GET /api/students/export?format=csv|ndjson[&courseId=][&since=yyyy-mm-ddThh:mm:ss]
+        // Streams live students straight from Postgres (COPY ... TO STDOUT for CSV, a cursor for NDJSON),
+        // gzip-compressed when the client accepts it. X-Export-Watermark is the "since" value for the next
+        // incremental pull: every row created before it is guaranteed to be visible to this export. It needs
+        // xact_start of every other session, which pg_stat_activity hides from roles that are neither superuser
+        // nor members of pg_read_all_stats; when any session is hidden the header is left out.
+        private static volatile boolean exportWatermarkWarned;
+        
+        private void handleExport(HttpExchange exchange) throws IOException {
+            Map<String, String> query = parseQuery(exchange.getRequestURI());
+            String format = query.getOrDefault("format", "csv");
+            Integer courseId = null;
+            java.sql.Timestamp since = null;
+            try {
+                if (!format.equals("csv") && !format.equals("ndjson")) throw new IllegalArgumentException(format);
+                if (query.containsKey("courseId")) courseId = Integer.parseInt(query.get("courseId"));
+                if (query.containsKey("since")) {
+                    String value = query.get("since").replace('T', ' ');
+                    since = java.sql.Timestamp.valueOf(value.length() == 10 ? value + " 00:00:00" : value);
+                }
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, 400, "{\"error\":\"Invalid query parameter\"}");
+                return;
+            }
+            
+            try (Connection conn = POOL.getConnection()) {
+                // Rows of transactions still in flight carry a created_at at or after their start, so stopping
+                // short of the oldest open transaction means a later pull from here cannot miss anything.
+                // Sessions this role may not inspect show a NULL state; their transactions could be older.
+                ResultSet watermarkRs = conn.createStatement().executeQuery(
+                    "SELECT least(localtimestamp, min(xact_start)::timestamp), " +
+                    "count(*) FILTER (WHERE state IS NULL AND backend_type = 'client backend') " +
+                    "FROM pg_stat_activity WHERE pid <> pg_backend_pid()");
+                watermarkRs.next();
+                java.sql.Timestamp watermark = watermarkRs.getLong(2) == 0 ? watermarkRs.getTimestamp(1) : null;
+                if (watermark == null && !exportWatermarkWarned) {
+                    exportWatermarkWarned = true;
+                    System.err.println("⚠️ Exports carry no X-Export-Watermark: this database role cannot see other sessions' " +
+                        "transactions (grant it pg_read_all_stats)");
+                }
+                
+                // Only parsed numbers and timestamps are inlined, since COPY cannot take bind parameters
+                StringBuilder select = new StringBuilder(
+                    "SELECT s.id, s.roll_number, s.name, s.email, s.course_id, c.course_name, s.date_of_birth, s.phone_number, s.created_at " +
+                    "FROM students s JOIN courses c ON s.course_id = c.id WHERE s.is_deleted = 0");
+                if (watermark != null) select.append(" AND s.created_at < '").append(watermark).append("'::timestamp");
+                if (since != null) select.append(" AND s.created_at >= '").append(since).append("'::timestamp");
+                if (courseId != null) select.append(" AND s.course_id = ").append(courseId.intValue());
+                select.append(" ORDER BY s.created_at, s.id");
+                
+                boolean gzip = StaticHandler.accepts(exchange.getRequestHeaders().getFirst("Accept-Encoding"), "gzip");
+                Headers headers = exchange.getResponseHeaders();
+                headers.set("Content-Type", format.equals("csv") ? "text/csv; charset=utf-8" : "application/x-ndjson");
+                headers.set("Content-Disposition", "attachment; filename=\"students." + format + "\"");
+                if (watermark != null) {
+                    headers.set("X-Export-Watermark", watermark.toLocalDateTime().toString());
+                    headers.set("Access-Control-Expose-Headers", "X-Export-Watermark");
+                }
+                if (gzip) headers.set("Content-Encoding", "gzip");
+                exchange.sendResponseHeaders(200, 0);
+                
+                OutputStream body = exchange.getResponseBody();
+                OutputStream out = gzip ? new java.util.zip.GZIPOutputStream(body, 65536) : new BufferedOutputStream(body, 65536);
+                try {
+                    if (format.equals("csv")) {
+                        conn.unwrap(org.postgresql.PGConnection.class).getCopyAPI()
+                            .copyOut("COPY (" + select + ") TO STDOUT WITH (FORMAT csv, HEADER)", out);
+                    } else {
+                        conn.setAutoCommit(false);
+                        PreparedStatement stmt = conn.prepareStatement(select.toString());
+                        stmt.setFetchSize(FETCH_SIZE);
+                        ResultSet rs = stmt.executeQuery();
+                        JsonWriter json = new JsonWriter(STREAM_CHUNK_BYTES + 512);
+                        while (rs.next()) {
+                            json.beginObject()
+                                .name("id").value(rs.getInt("id"))
+                                .name("rollNumber").value(rs.getString("roll_number"))
+                                .name("name").value(rs.getString("name"))
+                                .name("email").value(rs.getString("email"))
+                                .name("courseId").value(rs.getInt("course_id"))
+                                .name("course").value(rs.getString("course_name"))
+                                .name("dateOfBirth").value(rs.getString("date_of_birth"))
+                                .name("phoneNumber").value(rs.getString("phone_number"))
+                                .name("createdAt").value(rs.getTimestamp("created_at").toLocalDateTime().toString())
+                                .endObject().newline();
+                            if (json.size() >= STREAM_CHUNK_BYTES) json.flushTo(out);
+                        }
+                        json.flushTo(out);
+                    }
+                } catch (SQLException e) {
+                    // Closing would write the gzip trailer and last chunk, making a partial file look complete
+                    // while the client already holds a watermark past the missing rows
+                    System.err.println("❌ Student export aborted: " + e.getMessage());
+                    throw new ResponseAbortedException(e);
+                }
+                out.close();
+            } catch (SQLException e) {
+                System.err.println("❌ " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + " failed: " + e.getMessage());
                 sendResponse(exchange, 500, "{\"error\":\"Database error\"}");
             }
         }
         
-        private String readBody(HttpExchange exchange) throws IOException {
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody()))) {
-                return reader.lines().reduce("", String::concat);
+        // POST /api/students/import - body is CSV (header row naming the columns) or NDJSON, one student per line.
+        // Rows are validated as they stream in and copied into a temp staging table with COPY; uniqueness is then
+        // checked set-wise against live students and within the batch, and the survivors are inserted in one
+        // statement. The response is NDJSON: one line per rejected row, then a summary line.
+        private void handleImport(HttpExchange exchange) throws IOException {
+            String contentType = String.valueOf(exchange.getRequestHeaders().getFirst("Content-Type"));
+            boolean csv = contentType.startsWith("text/csv");
+            if (!csv && !contentType.startsWith("application/x-ndjson")) {
+                sendResponse(exchange, 415, "{\"error\":\"Use Content-Type text/csv or application/x-ndjson\"}");
+                return;
+            }
+            
+            BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+            exchange.sendResponseHeaders(200, 0);
+            int received = 0, rejected = 0, imported = 0;
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 8192)) {
+                try (Connection conn = POOL.getConnection()) {
+                    conn.setAutoCommit(false);
+                    conn.createStatement().execute(
+                        "CREATE TEMP TABLE import_staging (line INTEGER PRIMARY KEY, roll_number VARCHAR(20), name VARCHAR(50), " +
+                        "email VARCHAR(100), course_id INTEGER, date_of_birth DATE, phone_number VARCHAR(15)) ON COMMIT DROP");
+                    
+                    org.postgresql.copy.CopyIn copyIn = conn.unwrap(org.postgresql.PGConnection.class).getCopyAPI()
+                        .copyIn("COPY import_staging FROM STDIN WITH (FORMAT csv)");
+                    try {
+                        ByteArrayOutputStream batch = new ByteArrayOutputStream(IMPORT_COPY_BUFFER + 1024);
+                        String[] columns = null;
+                        String line;
+                        int lineNumber = 0;
+                        while ((line = reader.readLine()) != null) {
+                            lineNumber++;
+                            if (line.isBlank()) continue;
+                            Map<String, String> row;
+                            if (csv) {
+                                List<String> fields = parseCsvLine(line);
+                                if (columns == null) {
+                                    columns = fields.toArray(new String[0]);
+                                    continue;
+                                }
+                                row = new HashMap<>();
+                                for (int i = 0; i < columns.length && i < fields.size(); i++) row.put(columns[i].trim(), fields.get(i));
+                            } else {
+                                try {
+                                    row = JsonReader.parseObject(line);
+                                } catch (IllegalArgumentException e) {
+                                    rejected++;
+                                    writeImportError(out, lineNumber, e.getMessage());
+                                    continue;
+                                }
+                            }
+                            received++;
+                        
+                            String error = validateImportRow(row);
+                            if (error != null) {
+                                rejected++;
+                                writeImportError(out, lineNumber, error);
+                                continue;
+                            }
+                            batch.write(toCsvRecord(lineNumber, row).getBytes(StandardCharsets.UTF_8));
+                            if (batch.size() >= IMPORT_COPY_BUFFER) {
+                                copyIn.writeToCopy(batch.toByteArray(), 0, batch.size());
+                                batch.reset();
+                            }
+                        }
+                        if (batch.size() > 0) copyIn.writeToCopy(batch.toByteArray(), 0, batch.size());
+                        copyIn.endCopy();
+                    } finally {
+                        if (copyIn.isActive()) copyIn.cancelCopy();
+                    }
+                    
+                    // Held only for the set-wise check and the insert, so concurrent single writes cannot slip in between
+                    conn.createStatement().execute("LOCK TABLE students IN SHARE ROW EXCLUSIVE MODE");
+                    ResultSet conflicts = conn.createStatement().executeQuery(IMPORT_REJECT_DUPLICATES);
+                    while (conflicts.next()) {
+                        rejected++;
+                        writeImportError(out, conflicts.getInt("line"), IMPORT_DUPLICATE_MESSAGES.get(conflicts.getString("field")));
+                    }
+                    
+                    PreparedStatement insert = conn.prepareStatement(
+                        "INSERT INTO students (roll_number, name, email, course_id, date_of_birth, phone_number) " +
+                        "SELECT roll_number, name, email, course_id, date_of_birth, phone_number FROM import_staging ORDER BY line " +
+                        RETURNING_STUDENT);
+                    List<Student> added = new ArrayList<>();
+                    COURSE_STATS.beginWrite();
+                    try {
+                        ResultSet inserted = insert.executeQuery();
+                        List<Integer> birthYears = new ArrayList<>();
+                        while (inserted.next()) {
+                            added.add(readStudent(inserted, courseName(inserted.getInt("course_id"))));
+                            birthYears.add(CourseStats.birthYear(inserted, "date_of_birth"));
+                        }
+                        conn.commit();
+                        for (int i = 0; i < added.size(); i++) COURSE_STATS.add(added.get(i).courseId, birthYears.get(i), 1);
+                    } finally {
+                        COURSE_STATS.endWrite();
+                    }
+                    imported = added.size();
+                    for (Student student : added) {
+                        UNIQUE_KEYS.put(student.id, student.rollNumber, student.email, student.phoneNumber);
+                        SEARCH.put(student);
+                    }
+                    if (imported > 0) {
+                        STUDENTS_VERSION.incrementAndGet();
+                        // Too many rows to send one by one; subscribers reload the list instead
+                        conn.setAutoCommit(true);
+                        publishChange(conn, "reset", 0, "{}".getBytes(StandardCharsets.UTF_8));
+                        // The status line went out before the import ran, so there is no header to carry the position
+                        REPLICAS.recordWrite(conn);
+                    }
+                    
+                    out.write("{\"summary\":{\"received\":" + received + ",\"imported\":" + imported + ",\"rejected\":" + rejected + "}}\n");
+                } catch (SQLException e) {
+                    // The transaction rolled back, so nothing from this request was imported
+                    out.write("{\"error\":\"Import failed, no rows were imported: " + jsonEscape(e.getMessage()) + "\"}\n");
+                }
+            }
+        }
+        
+        private String validateImportRow(Map<String, String> row) {
+            String rollNumber = row.get("rollNumber"), name = row.get("name"), email = row.get("email"),
+                   courseId = row.get("courseId"), dateOfBirth = row.get("dateOfBirth"), phoneNumber = row.get("phoneNumber");
+            if (rollNumber == null || name == null || email == null || courseId == null || dateOfBirth == null || phoneNumber == null) {
+                return "Missing required fields";
+            }
+            if (rollNumber.length() < 3 || rollNumber.length() > 20) return "Roll number must be 3 to 20 characters long";
+            if (name.length() < 2 || name.length() > 50) return "Name must be 2 to 50 characters long";
+            if (name.chars().anyMatch(Character::isDigit)) return "Name should not contain numbers";
+            if (email.length() > 100 || !email.matches("[^\\s@]+@[^\\s@]+\\.[^\\s@]+")) return "Please enter a valid email address";
+            if (!phoneNumber.matches("[1-9][0-9]{9}")) return "Phone number must be exactly 10 digits and cannot start with 0";
+            try {
+                if (COURSES.nameOf(Integer.parseInt(courseId)) == null) return "Invalid course";
+            } catch (NumberFormatException e) {
+                return "Invalid course";
+            }
+            try {
+                java.sql.Date.valueOf(dateOfBirth);
+            } catch (IllegalArgumentException e) {
+                return "Date of birth must be in yyyy-mm-dd format";
+            }
+            return null;
+        }
+        
+        private void writeImportError(Writer out, int line, String error) throws IOException {
+            out.write("{\"line\":" + line + ",\"error\":\"" + error + "\"}\n");
+        }
+        
+        private static String toCsvRecord(int line, Map<String, String> row) {
+            return line + "," + csvField(row.get("rollNumber")) + "," + csvField(row.get("name")) + "," + csvField(row.get("email")) +
+                "," + row.get("courseId") + "," + row.get("dateOfBirth") + "," + row.get("phoneNumber") + "\n";
+        }
+        
+        private static String csvField(String value) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        
+        // Splits one CSV record, honouring double-quoted fields with "" escapes (records may not span lines)
+        static List<String> parseCsvLine(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
             }
+            fields.add(field.toString());
+            return fields;
         }
         
-        private Map<String, String> parseJson(String json) {
-            Map<String, String> params = new HashMap<>();
-            if (json.startsWith("{")) {
-                String[] pairs = json.replaceAll("[{}\"\\s]", "").split(",");
-                for (String pair : pairs) {
-                    String[] kv = pair.split(":");
-                    if (kv.length == 2) params.put(kv[0], kv[1]);
+        // Reads the whole request body, refusing anything over http.maxBodyBytes
+        private byte[] readBody(HttpExchange exchange) throws IOException {
+            String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+            try (InputStream in = exchange.getRequestBody()) {
+                if (contentLength != null) {
+                    long length = Long.parseLong(contentLength.trim());
+                    if (length > MAX_BODY_BYTES) throw new BadRequestException(413, "Request body too large");
+                    return in.readNBytes((int) length);
                 }
+                byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+                if (body.length > MAX_BODY_BYTES) throw new BadRequestException(413, "Request body too large");
+                return body;
+            } catch (NumberFormatException e) {
+                throw new BadRequestException(400, "Invalid Content-Length");
+            }
+        }
+        
+        private Map<String, String> parseJson(byte[] body) {
+            try {
+                return JsonReader.parseObject(body, 0, body.length);
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException(400, e.getMessage());
             }
-            return params;
         }
         
         private void sendResponse(HttpExchange exchange, int code, String response) throws IOException {
+            sendResponse(exchange, code, response.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        private void sendResponse(HttpExchange exchange, int code, byte[] bytes) throws IOException {
             exchange.getResponseHeaders().set("Content-Type", "application/json");
-            exchange.sendResponseHeaders(code, response.length());
+            exchange.sendResponseHeaders(code, bytes.length);
             try (OutputStream os = exchange.getResponseBody()) {
-                os.write(response.getBytes());
+                os.write(bytes);
             }
         }
     }
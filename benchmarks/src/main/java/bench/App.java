@@ -0,0 +1,108 @@
+package bench;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+
+// Bridge to StudentWebApp, which lives in the default package and so cannot be imported from a benchmark.
+// Method handles are resolved once; invoking them costs the same as a direct call after JIT.
+final class App {
+    static final int SEEDED_STUDENTS = Integer.getInteger("bench.students", 2000);
+
+    private static final MethodHandle NEW_STUDENT, TO_JSON, TO_JSON_BYTES, FORMAT_DATE, PARSE_JSON, READ_BODY;
+    private static final MethodHandle INITIALIZE_DATABASE, REFRESH_COURSES, RELOAD_UNIQUE_KEYS;
+    private static final Object UNIQUE_KEYS;
+
+    static {
+        // Must be set before StudentWebApp initializes: its pool reads the URL in a static initializer
+        System.setProperty("db.url", System.getProperty("db.url", "jdbc:standin:bench"));
+        System.setProperty("db.listen", "false");
+        try {
+            ClassLoader loader = App.class.getClassLoader();
+            Class.forName("StandInDatabase", true, loader);
+            Class<?> app = Class.forName("StudentWebApp", true, loader);
+            Class<?> student = Class.forName("StudentWebApp$Student", true, loader);
+            Class<?> handler = Class.forName("StudentWebApp$StudentHandler", true, loader);
+            Class<?> uniqueKeys = Class.forName("StudentWebApp$UniqueKeyIndex", true, loader);
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(app, MethodHandles.lookup());
+
+            NEW_STUDENT = lookup.findConstructor(student, MethodType.methodType(void.class,
+                int.class, String.class, String.class, String.class, String.class, String.class, String.class, int.class));
+            TO_JSON = lookup.findVirtual(student, "toJson", MethodType.methodType(String.class));
+            TO_JSON_BYTES = lookup.findVirtual(student, "toJsonBytes", MethodType.methodType(byte[].class));
+            FORMAT_DATE = lookup.findStatic(app, "formatDateForDisplay", MethodType.methodType(String.class, String.class));
+            PARSE_JSON = lookup.findVirtual(handler, "parseJson", MethodType.methodType(Map.class, byte[].class));
+            READ_BODY = lookup.findVirtual(handler, "readBody", MethodType.methodType(byte[].class, HttpExchange.class));
+            INITIALIZE_DATABASE = lookup.findStatic(app, "initializeDatabase", MethodType.methodType(void.class));
+            REFRESH_COURSES = lookup.findStatic(app, "refreshCourses", MethodType.methodType(void.class));
+            RELOAD_UNIQUE_KEYS = lookup.findVirtual(uniqueKeys, "reload", MethodType.methodType(void.class));
+            UNIQUE_KEYS = lookup.findStaticGetter(app, "UNIQUE_KEYS", uniqueKeys).invoke();
+        } catch (Throwable e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static boolean seeded;
+
+    private App() {
+    }
+
+    // Creates the schema and SEEDED_STUDENTS rows once per JVM (JMH forks a JVM per benchmark by default)
+    static synchronized void seed() throws Throwable {
+        if (seeded) return;
+        INITIALIZE_DATABASE.invoke();
+        REFRESH_COURSES.invoke();
+        HttpHandler handler = newStudentHandler();
+        for (int i = 1; i <= SEEDED_STUDENTS; i++) {
+            FakeExchange exchange = FakeExchange.post("/api/students", studentJson("SEED" + i, i, 1 + i % 12));
+            handler.handle(exchange);
+            if (exchange.getResponseCode() / 100 != 2) {
+                throw new IllegalStateException("Seeding failed with HTTP " + exchange.getResponseCode() + ": " + exchange.responseText());
+            }
+        }
+        RELOAD_UNIQUE_KEYS.invoke(UNIQUE_KEYS);
+        seeded = true;
+    }
+
+    static String studentJson(String rollNumber, long n, int courseId) {
+        return "{\"rollNumber\":\"" + rollNumber + "\",\"name\":\"Student " + n + "\",\"email\":\"" + rollNumber.toLowerCase() +
+            "@example.com\",\"courseId\":\"" + courseId + "\",\"dateOfBirth\":\"2001-0" + (1 + n % 9) + "-1" + (n % 10) +
+            "\",\"phoneNumber\":\"" + (9000000000L + n) + "\"}";
+    }
+
+    static HttpHandler newStudentHandler() throws ReflectiveOperationException {
+        Class<?> handler = Class.forName("StudentWebApp$StudentHandler", true, App.class.getClassLoader());
+        var constructor = handler.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        return (HttpHandler) constructor.newInstance();
+    }
+
+    static Object newStudent(int id, String rollNumber, String name, String email, String course, String dateOfBirth,
+                             String phoneNumber, int courseId) throws Throwable {
+        return NEW_STUDENT.invoke(id, rollNumber, name, email, course, dateOfBirth, phoneNumber, courseId);
+    }
+
+    static String toJson(Object student) throws Throwable {
+        return (String) TO_JSON.invoke(student);
+    }
+
+    static byte[] toJsonBytes(Object student) throws Throwable {
+        return (byte[]) TO_JSON_BYTES.invoke(student);
+    }
+
+    static String formatDateForDisplay(String dbDate) throws Throwable {
+        return (String) FORMAT_DATE.invoke(dbDate);
+    }
+
+    static Map<?, ?> parseJson(HttpHandler handler, byte[] body) throws Throwable {
+        return (Map<?, ?>) PARSE_JSON.invoke(handler, body);
+    }
+
+    static byte[] readBody(HttpHandler handler, HttpExchange exchange) throws Throwable {
+        return (byte[]) READ_BODY.invoke(handler, exchange);
+    }
+}
@@ -0,0 +1,122 @@
+package bench;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+// In-memory HttpExchange so handlers can be driven without a socket; the response body is kept for inspection
+final class FakeExchange extends HttpExchange {
+    private static final InetSocketAddress LOCAL = new InetSocketAddress("127.0.0.1", 7000);
+
+    private final String method;
+    private final URI uri;
+    private final Headers requestHeaders = new Headers();
+    private final Headers responseHeaders = new Headers();
+    private final Map<String, Object> attributes = new HashMap<>();
+    private InputStream requestBody;
+    private OutputStream responseBody = new ByteArrayOutputStream(1024);
+    private int responseCode = -1;
+
+    FakeExchange(String method, String uri, byte[] body) {
+        this.method = method;
+        this.uri = URI.create(uri);
+        this.requestBody = new ByteArrayInputStream(body);
+        if (body.length > 0) requestHeaders.set("Content-Length", String.valueOf(body.length));
+    }
+
+    static FakeExchange get(String uri) {
+        return new FakeExchange("GET", uri, new byte[0]);
+    }
+
+    static FakeExchange post(String uri, String json) {
+        return new FakeExchange("POST", uri, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static FakeExchange put(String uri, String json) {
+        return new FakeExchange("PUT", uri, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    String responseText() {
+        return responseBody instanceof ByteArrayOutputStream
+            ? ((ByteArrayOutputStream) responseBody).toString(StandardCharsets.UTF_8) : "";
+    }
+
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    public String getRequestMethod() {
+        return method;
+    }
+
+    public HttpContext getHttpContext() {
+        return null;
+    }
+
+    public void close() {
+    }
+
+    public InputStream getRequestBody() {
+        return requestBody;
+    }
+
+    public OutputStream getResponseBody() {
+        return responseBody;
+    }
+
+    public void sendResponseHeaders(int code, long length) {
+        responseCode = code;
+    }
+
+    public InetSocketAddress getRemoteAddress() {
+        return LOCAL;
+    }
+
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    public InetSocketAddress getLocalAddress() {
+        return LOCAL;
+    }
+
+    public String getProtocol() {
+        return "HTTP/1.1";
+    }
+
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    public void setAttribute(String name, Object value) {
+        attributes.put(name, value);
+    }
+
+    public void setStreams(InputStream in, OutputStream out) {
+        if (in != null) requestBody = in;
+        if (out != null) responseBody = out;
+    }
+
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+}
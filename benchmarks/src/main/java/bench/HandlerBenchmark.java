@@ -0,0 +1,90 @@
+package bench;
+
+import com.sun.net.httpserver.HttpHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Full StudentHandler round trips (routing, pool checkout, JDBC, caches, serialization) against the
+// in-process stand-in database. latencyMicros simulates the database round trip; 0 isolates the Java side.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandlerBenchmark {
+    // Spread over more cursors than the list cache holds, so listPage measures the database path
+    private static final int CURSORS = 1000;
+
+    @Param({"0"})
+    public int latencyMicros;
+
+    private HttpHandler handler;
+    private final AtomicLong created = new AtomicLong();
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int next(int bound) {
+            next = next % bound + 1;
+            return next;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        // Read by StudentWebApp's static initializer, which App triggers
+        System.setProperty("db.url", "jdbc:standin:bench;latencyMicros=" + latencyMicros);
+        App.seed();
+        handler = App.newStudentHandler();
+    }
+
+    private FakeExchange send(FakeExchange exchange) throws Exception {
+        handler.handle(exchange);
+        if (exchange.getResponseCode() / 100 != 2) {
+            throw new IllegalStateException("HTTP " + exchange.getResponseCode() + ": " + exchange.responseText());
+        }
+        return exchange;
+    }
+
+    @Benchmark
+    public FakeExchange listPage(Cursor cursor) throws Exception {
+        return send(FakeExchange.get("/api/students?limit=50&after=" + cursor.next(CURSORS)));
+    }
+
+    @Benchmark
+    public FakeExchange listPageCached() throws Exception {
+        return send(FakeExchange.get("/api/students?limit=50"));
+    }
+
+    @Benchmark
+    public FakeExchange getById(Cursor cursor) throws Exception {
+        return send(FakeExchange.get("/api/students/" + cursor.next(App.SEEDED_STUDENTS)));
+    }
+
+    @Benchmark
+    public FakeExchange create() throws Exception {
+        long n = App.SEEDED_STUDENTS + created.incrementAndGet();
+        return send(FakeExchange.post("/api/students", App.studentJson("NEW" + n, n, 1 + (int) (n % 12))));
+    }
+
+    @Benchmark
+    public FakeExchange update(Cursor cursor) throws Exception {
+        int id = cursor.next(App.SEEDED_STUDENTS);
+        return send(FakeExchange.put("/api/students/" + id, App.studentJson("SEED" + id, id, 1 + (id + 1) % 12)));
+    }
+}
@@ -0,0 +1,97 @@
+package bench;
+
+import com.sun.net.httpserver.HttpHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Per-request CPU work that involves no database: JSON in and out, date formatting and body reading
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    private Object student;
+    private byte[] body;
+    private HttpHandler handler;
+    // Baseline inputs: the fields as the pre-JsonWriter serializer saw them, and the body as the old readBody returned it
+    private int id, courseId;
+    private String rollNumber, name, email, course, dateOfBirth, phoneNumber, bodyText;
+
+    @Setup
+    public void setup() throws Throwable {
+        student = App.newStudent(1234, "21CS1234", "Priya \"P\" Sharma", "priya.sharma@example.com",
+            "Computer Science and Engineering (CSE)", "14-03-2003", "9876543210", 1);
+        body = App.studentJson("21CS1234", 1234, 1).getBytes(StandardCharsets.UTF_8);
+        handler = App.newStudentHandler();
+        id = 1234;
+        rollNumber = "21CS1234";
+        name = "Priya \"P\" Sharma";
+        email = "priya.sharma@example.com";
+        course = "Computer Science and Engineering (CSE)";
+        dateOfBirth = "14-03-2003";
+        phoneNumber = "9876543210";
+        courseId = 1;
+        bodyText = new String(body, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String studentToJson() throws Throwable {
+        return App.toJson(student);
+    }
+
+    @Benchmark
+    public byte[] studentToJsonBytes() throws Throwable {
+        return App.toJsonBytes(student);
+    }
+
+    // Student.toJson before JsonWriter; it did not escape, so it is only comparable on timing and allocation
+    @Benchmark
+    public byte[] baselineStudentToJsonFormat() {
+        return String.format("{\"id\":%d,\"rollNumber\":\"%s\",\"name\":\"%s\",\"email\":\"%s\",\"course\":\"%s\",\"dateOfBirth\":\"%s\",\"phoneNumber\":\"%s\",\"courseId\":%d}",
+            id, rollNumber, name, email, course, dateOfBirth, phoneNumber, courseId).getBytes();
+    }
+
+    @Benchmark
+    public Map<?, ?> parseJson() throws Throwable {
+        return App.parseJson(handler, body);
+    }
+
+    // StudentHandler.parseJson before JsonReader
+    @Benchmark
+    public Map<String, String> baselineParseJsonReplaceAll() {
+        Map<String, String> params = new HashMap<>();
+        if (bodyText.startsWith("{")) {
+            String[] pairs = bodyText.replaceAll("[{}\"\\s]", "").split(",");
+            for (String pair : pairs) {
+                String[] kv = pair.split(":");
+                if (kv.length == 2) params.put(kv[0], kv[1]);
+            }
+        }
+        return params;
+    }
+
+    @Benchmark
+    public String formatDateForDisplay() throws Throwable {
+        return App.formatDateForDisplay("2003-03-14");
+    }
+
+    @Benchmark
+    public byte[] readBody() throws Throwable {
+        return App.readBody(handler, new FakeExchange("POST", "/api/students", body));
+    }
+}
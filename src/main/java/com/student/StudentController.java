@@ -1,6 +1,11 @@
 package com.student;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -9,15 +14,22 @@ import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/students")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = "X-Has-Next")
 public class StudentController {
     
     @Autowired
     private StudentRepository studentRepository;
     
+    // GET /api/students?page=0&size=100[&course=] - one page in id order; X-Has-Next says whether another follows
     @GetMapping
-    public List<Student> getAllStudents() {
-        return studentRepository.findAll();
+    public ResponseEntity<List<StudentSummary>> getAllStudents(@RequestParam(required = false) String course,
+            @PageableDefault(size = 100, sort = "id", direction = Sort.Direction.ASC) Pageable pageable) {
+        Slice<StudentSummary> page = course == null
+            ? studentRepository.findSummaries(pageable)
+            : studentRepository.findSummariesByCourse(course, pageable);
+        return ResponseEntity.ok()
+            .header("X-Has-Next", String.valueOf(page.hasNext()))
+            .body(page.getContent());
     }
     
     @GetMapping("/{id}")
@@ -31,24 +43,27 @@ public class StudentController {
         return studentRepository.save(student);
     }
     
+    // Inserted in one transaction as JDBC batches of hibernate.jdbc.batch_size rows
+    @PostMapping("/batch")
+    public ResponseEntity<List<Student>> createStudents(@RequestBody List<Student> students) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(studentRepository.saveAll(students));
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<Student> updateStudent(@PathVariable Long id, @RequestBody Student studentDetails) {
-        Optional<Student> optionalStudent = studentRepository.findById(id);
-        if (optionalStudent.isPresent()) {
-            Student student = optionalStudent.get();
-            student.setName(studentDetails.getName());
-            student.setEmail(studentDetails.getEmail());
-            student.setCourse(studentDetails.getCourse());
-            student.setAge(studentDetails.getAge());
-            return ResponseEntity.ok(studentRepository.save(student));
+        // Every column is overwritten, so the request body is the updated row and no read is needed
+        int updated = studentRepository.updateDetails(id, studentDetails.getName(), studentDetails.getEmail(),
+            studentDetails.getCourse(), studentDetails.getAge());
+        if (updated == 0) {
+            return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.notFound().build();
+        studentDetails.setId(id);
+        return ResponseEntity.ok(studentDetails);
     }
     
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteStudent(@PathVariable Long id) {
-        if (studentRepository.existsById(id)) {
-            studentRepository.deleteById(id);
+        if (studentRepository.deleteStudentById(id) > 0) {
             return ResponseEntity.ok().build();
         }
         return ResponseEntity.notFound().build();
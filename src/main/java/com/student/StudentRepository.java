@@ -1,8 +1,25 @@
 package com.student;
 
+import org.hibernate.annotations.QueryHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+
+// updateDetails and deleteStudentById come from StudentWrites
 @Repository
-public interface StudentRepository extends JpaRepository<Student, Long> {
+public interface StudentRepository extends JpaRepository<Student, Long>, StudentWrites {
+    
+    // A Slice reads one row past the page to know whether there is a next one, instead of running a count query
+    @Query("SELECT new com.student.StudentSummary(s.id, s.name, s.email, s.course, s.age) FROM Student s")
+    @org.springframework.data.jpa.repository.QueryHints(@QueryHint(name = QueryHints.CACHEABLE, value = "true"))
+    Slice<StudentSummary> findSummaries(Pageable pageable);
+    
+    @Query("SELECT new com.student.StudentSummary(s.id, s.name, s.email, s.course, s.age) FROM Student s WHERE s.course = :course")
+    @org.springframework.data.jpa.repository.QueryHints(@QueryHint(name = QueryHints.CACHEABLE, value = "true"))
+    Slice<StudentSummary> findSummariesByCourse(@Param("course") String course, Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.student;
+
+// Read-only row for list endpoints; selected directly by JPQL, so no managed entity or dirty checking is involved
+public class StudentSummary {
+    private final Long id;
+    private final String name;
+    private final String email;
+    private final String course;
+    private final int age;
+    
+    public StudentSummary(Long id, String name, String email, String course, int age) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.course = course;
+        this.age = age;
+    }
+    
+    public Long getId() { return id; }
+    
+    public String getName() { return name; }
+    
+    public String getEmail() { return email; }
+    
+    public String getCourse() { return course; }
+    
+    public int getAge() { return age; }
+}
\ No newline at end of file
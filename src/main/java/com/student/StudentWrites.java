@@ -0,0 +1,9 @@
+package com.student;
+
+// Writes that touch one student by id; see StudentWritesImpl for how they keep the second-level cache warm
+public interface StudentWrites {
+    
+    int updateDetails(Long id, String name, String email, String course, int age);
+    
+    int deleteStudentById(Long id);
+}
\ No newline at end of file
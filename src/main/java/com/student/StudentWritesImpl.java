@@ -0,0 +1,69 @@
+package com.student;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+// A JPQL or native UPDATE/DELETE is a bulk statement to Hibernate: it cannot tell which rows changed, so it empties the
+// whole Student cache region. These statements only ever touch the row with the given id, so they run as plain SQL and
+// invalidate that one entry the way Hibernate does for an entity update. The entry stays locked until the transaction
+// ends, so a load racing the write cannot cache the old row, and the students table timestamp moves so cached list
+// pages (which may contain the row) are refreshed.
+public class StudentWritesImpl implements StudentWrites {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    @Transactional
+    public int updateDetails(Long id, String name, String email, String course, int age) {
+        return writeOne(id, "UPDATE students SET name = ?, email = ?, course = ?, age = ? WHERE id = ?",
+            name, email, course, age, id);
+    }
+    
+    @Override
+    @Transactional
+    public int deleteStudentById(Long id) {
+        return writeOne(id, "DELETE FROM students WHERE id = ?", id);
+    }
+    
+    private int writeOne(Long id, String sql, Object... params) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Student.class);
+        TimestampsCache timestamps = session.getFactory().getCache().getTimestampsCache();
+        Serializable[] spaces = persister.getQuerySpaces();
+        EntityDataAccess entries = persister.canWriteToCache() ? persister.getCacheAccessStrategy() : null;
+        Object key = entries == null ? null : entries.generateCacheKey(id, persister, session.getFactory(), session.getTenantIdentifier());
+        SoftLock lock = entries == null ? null : entries.lockItem(session, key, null);
+        timestamps.preInvalidate(spaces, session);
+        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, completed) -> {
+            if (entries != null) entries.unlockItem(completed, key, lock);
+            timestamps.invalidate(spaces, completed);
+        });
+        // Pending changes to this student would otherwise be flushed over the statement later
+        session.flush();
+        // Through Hibernate's own JDBC coordinator, like its native queries, so SQL logging and statistics see it
+        JdbcCoordinator jdbc = session.getJdbcCoordinator();
+        PreparedStatement stmt = jdbc.getStatementPreparer().prepareStatement(sql);
+        try {
+            for (int i = 0; i < params.length; i++) stmt.setObject(i + 1, params[i]);
+            return jdbc.getResultSetReturn().executeUpdate(stmt);
+        } catch (SQLException e) {
+            throw session.getJdbcServices().getSqlExceptionHelper().convert(e, "could not execute statement", sql);
+        } finally {
+            jdbc.getLogicalConnection().getResourceRegistry().release(stmt);
+            jdbc.afterStatementExecution();
+        }
+    }
+}
\ No newline at end of file
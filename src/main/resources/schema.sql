@@ -0,0 +1,5 @@
+-- The id generator reserves blocks of 50 from students_seq. Tables whose ids came from the old identity column
+-- start the sequence past the highest id so new blocks cannot collide with existing rows.
+CREATE SEQUENCE IF NOT EXISTS students_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('students_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM students))
+WHERE (SELECT last_value FROM students_seq) <= (SELECT COALESCE(MAX(id), 0) FROM students);
@@ -1,10 +1,20 @@
 const API_URL = 'http://localhost:7000/api/students';
 const COURSES_URL = 'http://localhost:7000/api/courses';
+const PAGE_SIZE = 100;
 let isEditing = false;
+let nextAfter = null;
+// Offset of the next page of ranked search results, or null when there are no more
+let searchOffset = null;
+let searchTimer = null;
+// True while the change feed is connected; writes then rely on it instead of reloading the list
+let liveUpdates = false;
+// Database position of this page's latest write; reads send it back so a lagging replica never answers them
+let readAfter = null;
 
 document.addEventListener('DOMContentLoaded', function() {
     loadCourses();
     loadStudents();
+    connectChangeFeed();
     
     document.getElementById('student-form').addEventListener('submit', function(e) {
         e.preventDefault();
@@ -64,39 +74,111 @@ async function loadCourses() {
     }
 }
 
-async function loadStudents() {
+async function loadStudents(append = false) {
     try {
-        const response = await fetch(API_URL);
+        const searchTerm = document.getElementById('search-input').value.trim();
+        if (searchTerm.length >= 2 && await searchIndex(searchTerm, append)) {
+            return;
+        }
+        searchOffset = null;
+        const params = new URLSearchParams({ limit: PAGE_SIZE });
+        if (searchTerm) {
+            params.set('q', searchTerm);
+        }
+        if (append && nextAfter) {
+            params.set('after', nextAfter);
+        }
+        
+        const response = await fetch(`${API_URL}?${params}`, { headers: readHeaders() });
         const students = await response.json();
-        displayStudents(students);
+        nextAfter = response.headers.get('X-Next-After');
+        displayStudents(students, append);
+        document.getElementById('load-more-btn').style.display = nextAfter ? '' : 'none';
     } catch (error) {
         console.error('Error loading students:', error);
         alert('Error loading students. Please check if the server is running.');
     }
 }
 
-function displayStudents(students) {
+// Ranked results from /api/students/search. Returns false while the server is still building its index,
+// so the caller falls back to the plain list filter.
+async function searchIndex(searchTerm, append) {
+    const params = new URLSearchParams({ q: searchTerm, limit: PAGE_SIZE, offset: append && searchOffset ? searchOffset : 0 });
+    const response = await fetch(`${API_URL}/search?${params}`);
+    if (!response.ok) {
+        return false;
+    }
+    const result = await response.json();
+    const shown = (append && searchOffset ? searchOffset : 0) + result.students.length;
+    searchOffset = shown < result.total ? shown : null;
+    nextAfter = null;
+    displayStudents(result.students, append);
+    document.getElementById('load-more-btn').style.display = searchOffset ? '' : 'none';
+    return true;
+}
+
+function displayStudents(students, append = false) {
     const tbody = document.getElementById('students-tbody');
-    tbody.innerHTML = '';
+    if (!append) {
+        tbody.innerHTML = '';
+    }
     
     students.forEach(student => {
-        const row = document.createElement('tr');
-        row.innerHTML = `
-            <td>${student.rollNumber}</td>
-            <td>${student.name}</td>
-            <td>${student.email}</td>
-            <td>${student.course}</td>
-            <td>${student.dateOfBirth}</td>
-            <td>${student.phoneNumber}</td>
-            <td>
-                <button class="action-btn edit-btn" onclick="editStudent(${student.id})">Edit</button>
-                <button class="action-btn delete-btn" onclick="deleteStudent(${student.id})">Delete</button>
-            </td>
-        `;
-        tbody.appendChild(row);
+        tbody.appendChild(createStudentRow(student));
     });
 }
 
+function createStudentRow(student) {
+    const row = document.createElement('tr');
+    row.dataset.id = student.id;
+    row.innerHTML = `
+        <td>${student.rollNumber}</td>
+        <td>${student.name}</td>
+        <td>${student.email}</td>
+        <td>${student.course}</td>
+        <td>${student.dateOfBirth}</td>
+        <td>${student.phoneNumber}</td>
+        <td>
+            <button class="action-btn edit-btn" onclick="editStudent(${student.id})">Edit</button>
+            <button class="action-btn delete-btn" onclick="deleteStudent(${student.id})">Delete</button>
+        </td>
+    `;
+    return row;
+}
+
+// Server-Sent Events from /api/students/events: each change is applied to the table in place.
+// EventSource reconnects on its own and the server replays what was missed, or sends reset.
+function connectChangeFeed() {
+    if (!window.EventSource) {
+        return;
+    }
+    const source = new EventSource(`${API_URL}/events`);
+    source.onopen = () => { liveUpdates = true; };
+    source.onerror = () => { liveUpdates = false; };
+    source.addEventListener('upsert', e => applyUpsert(JSON.parse(e.data)));
+    source.addEventListener('delete', e => {
+        const row = findStudentRow(JSON.parse(e.data).id);
+        if (row) {
+            row.remove();
+        }
+    });
+    source.addEventListener('reset', () => loadStudents());
+}
+
+function findStudentRow(id) {
+    return document.querySelector(`#students-tbody tr[data-id="${id}"]`);
+}
+
+function applyUpsert(student) {
+    const row = findStudentRow(student.id);
+    if (row) {
+        row.replaceWith(createStudentRow(student));
+    } else if (!nextAfter && !document.getElementById('search-input').value.trim()) {
+        // New ids are the highest, so a new student belongs at the end of a fully loaded, unfiltered list
+        document.getElementById('students-tbody').appendChild(createStudentRow(student));
+    }
+}
+
 async function addStudent() {
     if (!validateForm()) {
         return;
@@ -104,26 +186,11 @@ async function addStudent() {
     
     const student = getFormData();
     
-    // Check for duplicate roll number and phone number on client side
+    // Ask the server whether the roll number, email or phone number is already taken
     try {
-        const response = await fetch(API_URL);
-        const existingStudents = await response.json();
-        
-        const duplicateRollNumber = existingStudents.find(s => s.rollNumber.toLowerCase() === student.rollNumber.toLowerCase());
-        if (duplicateRollNumber) {
-            alert('Roll number already exists. Please use a different roll number.');
-            return;
-        }
-        
-        const duplicateEmail = existingStudents.find(s => s.email.toLowerCase() === student.email.toLowerCase());
-        if (duplicateEmail) {
-            alert('Email already exists. Please use a different email address.');
-            return;
-        }
-        
-        const duplicatePhoneNumber = existingStudents.find(s => s.phoneNumber === student.phoneNumber);
-        if (duplicatePhoneNumber) {
-            alert('Phone number already exists. Please use a different phone number.');
+        const conflict = await findConflict(student);
+        if (conflict) {
+            alert(conflict);
             return;
         }
     } catch (error) {
@@ -140,9 +207,12 @@ async function addStudent() {
         });
         
         if (response.ok) {
+            rememberWrite(response);
             alert('Student added successfully!');
             resetForm();
-            loadStudents();
+            if (!liveUpdates) {
+                loadStudents();
+            }
         } else {
             try {
                 const errorData = await response.json();
@@ -159,7 +229,7 @@ async function addStudent() {
 
 async function editStudent(id) {
     try {
-        const response = await fetch(`${API_URL}/${id}`);
+        const response = await fetch(`${API_URL}/${id}`, { headers: readHeaders() });
         const student = await response.json();
         
         document.getElementById('student-id').value = student.id;
@@ -191,26 +261,11 @@ async function updateStudent() {
     const id = document.getElementById('student-id').value;
     const student = getFormData();
     
-    // Check for duplicate roll number and phone number on client side (excluding current student)
+    // Ask the server whether the values are taken by another student (excluding current student)
     try {
-        const response = await fetch(API_URL);
-        const existingStudents = await response.json();
-        
-        const duplicateRollNumber = existingStudents.find(s => s.id != id && s.rollNumber.toLowerCase() === student.rollNumber.toLowerCase());
-        if (duplicateRollNumber) {
-            alert('Roll number already exists. Please use a different roll number.');
-            return;
-        }
-        
-        const duplicateEmail = existingStudents.find(s => s.id != id && s.email.toLowerCase() === student.email.toLowerCase());
-        if (duplicateEmail) {
-            alert('Email already exists. Please use a different email address.');
-            return;
-        }
-        
-        const duplicatePhoneNumber = existingStudents.find(s => s.id != id && s.phoneNumber === student.phoneNumber);
-        if (duplicatePhoneNumber) {
-            alert('Phone number already exists. Please use a different phone number.');
+        const conflict = await findConflict(student, id);
+        if (conflict) {
+            alert(conflict);
             return;
         }
     } catch (error) {
@@ -227,9 +282,12 @@ async function updateStudent() {
         });
         
         if (response.ok) {
+            rememberWrite(response);
             alert('Student updated successfully!');
             resetForm();
-            loadStudents();
+            if (!liveUpdates) {
+                loadStudents();
+            }
         } else {
             try {
                 const errorData = await response.json();
@@ -244,6 +302,33 @@ async function updateStudent() {
     }
 }
 
+function readHeaders() {
+    return readAfter ? { 'X-Read-After': readAfter } : {};
+}
+
+function rememberWrite(response) {
+    const position = response.headers.get('X-Read-After');
+    if (position) {
+        readAfter = position;
+    }
+}
+
+// Returns the message for the first value already in use, or null when everything is available
+async function findConflict(student, excludeId) {
+    const params = new URLSearchParams({
+        rollNumber: student.rollNumber,
+        email: student.email,
+        phoneNumber: student.phoneNumber
+    });
+    if (excludeId) {
+        params.set('excludeId', excludeId);
+    }
+    
+    const response = await fetch(`${API_URL}/availability?${params}`);
+    const result = await response.json();
+    return result.available ? null : Object.values(result.conflicts)[0];
+}
+
 async function deleteStudent(id) {
     if (confirm('Are you sure you want to delete this student?')) {
         try {
@@ -252,8 +337,11 @@ async function deleteStudent(id) {
             });
             
             if (response.ok) {
+                rememberWrite(response);
                 alert('Student deleted successfully!');
-                loadStudents();
+                if (!liveUpdates) {
+                    loadStudents();
+                }
             } else {
                 alert('Error deleting student.');
             }
@@ -359,26 +447,11 @@ function resetForm() {
 }
 
 function searchStudents() {
-    const searchTerm = document.getElementById('search-input').value.toLowerCase();
-    const table = document.getElementById('students-table');
-    const rows = table.getElementsByTagName('tr');
-    
-    // Start from index 1 to skip the header row
-    for (let i = 1; i < rows.length; i++) {
-        const row = rows[i];
-        const cells = row.getElementsByTagName('td');
-        let found = false;
-        
-        // Search through all cells in the row
-        for (let j = 0; j < cells.length - 1; j++) { // -1 to exclude Actions column
-            const cellText = cells[j].textContent.toLowerCase();
-            if (cellText.includes(searchTerm)) {
-                found = true;
-                break;
-            }
-        }
-        
-        // Show or hide the row based on search result
-        row.style.display = found ? '' : 'none';
-    }
+    // Filtering happens on the server; wait for the user to pause typing before asking
+    clearTimeout(searchTimer);
+    searchTimer = setTimeout(() => loadStudents(), 250);
+}
+
+function loadMoreStudents() {
+    loadStudents(true);
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.student;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs on an in-memory H2 database with the application's JPA and cache settings; schema.sql is PostgreSQL-only and
+// Hibernate creates the schema instead
+@DataJpaTest(properties = {
+    "spring.sql.init.mode=never",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class StudentRepositoryTest {
+    
+    @Autowired
+    private StudentRepository studentRepository;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    private Statistics statistics;
+    
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        studentRepository.deleteAllInBatch();
+        entityManagerFactory.getCache().evictAll();
+    }
+    
+    @Test
+    void pagesInIdOrderWithoutCounting() {
+        studentRepository.saveAll(students("page", 250, "CSE"));
+        studentRepository.saveAll(students("other", 10, "ECE"));
+        entityManager.flush();
+        statistics.clear();
+        
+        Slice<StudentSummary> first = studentRepository.findSummaries(PageRequest.of(0, 100, Sort.by("id")));
+        Slice<StudentSummary> last = studentRepository.findSummaries(PageRequest.of(2, 100, Sort.by("id")));
+        
+        assertThat(first.getContent()).hasSize(100);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(first.getContent().get(0).getId()).isLessThan(first.getContent().get(99).getId());
+        assertThat(last.getContent()).hasSize(60);
+        assertThat(last.hasNext()).isFalse();
+        // A Slice never issues a count query
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        
+        Slice<StudentSummary> ece = studentRepository.findSummariesByCourse("ECE", PageRequest.of(0, 100, Sort.by("id")));
+        assertThat(ece.getContent()).hasSize(10).allMatch(student -> student.getCourse().equals("ECE"));
+    }
+    
+    @Test
+    void insertsInJdbcBatches() {
+        int rows = 10_000;
+        List<Student> students = students("batch", rows, "CSE");
+        
+        studentRepository.saveAll(students);
+        entityManager.flush();
+        
+        // Ids come from the sequence 50 at a time and rows go out 50 per batch, rather than one statement per row
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2 * rows / 50 + 2);
+        assertThat(studentRepository.count()).isEqualTo(rows);
+    }
+    
+    // Not transactional, so every repository call commits and the second-level cache sees it
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void updateAndDeleteAreOneStatementAndEvictOnlyTheirRow() {
+        List<Student> saved = studentRepository.saveAll(students("cache", 3, "CSE"));
+        Long updatedId = saved.get(0).getId(), deletedId = saved.get(1).getId(), untouchedId = saved.get(2).getId();
+        for (Student student : saved) studentRepository.findById(student.getId());
+        studentRepository.findSummaries(PageRequest.of(0, 100, Sort.by("id")));
+        assertThat(entityManagerFactory.getCache().contains(Student.class, untouchedId)).isTrue();
+        
+        statistics.clear();
+        assertThat(studentRepository.updateDetails(updatedId, "Renamed", "renamed@example.com", "ECE", 30)).isEqualTo(1);
+        assertThat(studentRepository.deleteStudentById(deletedId)).isEqualTo(1);
+        assertThat(studentRepository.deleteStudentById(deletedId)).isEqualTo(0);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        
+        // The untouched student is still served from the cache
+        statistics.clear();
+        assertThat(studentRepository.findById(untouchedId)).isPresent();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        
+        // The written ones are read again from the database
+        statistics.clear();
+        assertThat(studentRepository.findById(updatedId)).get().extracting(Student::getName).isEqualTo("Renamed");
+        assertThat(studentRepository.findById(deletedId)).isEmpty();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        
+        // The cached list page is stale after the writes and must not be served
+        statistics.clear();
+        List<StudentSummary> page = studentRepository.findSummaries(PageRequest.of(0, 100, Sort.by("id"))).getContent();
+        assertThat(statistics.getQueryCacheHitCount()).isZero();
+        assertThat(page).extracting(StudentSummary::getName).containsExactly("Renamed", "cache 3");
+    }
+    
+    private static List<Student> students(String prefix, int count, String course) {
+        List<Student> students = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            students.add(new Student(prefix + " " + i, prefix + i + "@example.com", course, 18 + i % 10));
+        }
+        return students;
+    }
+}
\ No newline at end of file